@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.PersistenceException;
+import javax.persistence.TransactionRequiredException;
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs the operations of blocking DAO in the executor. The DAO is created by the factory for every task
+ * with new entity manager of the factory, and new entity manager of the replica factory if any.
+ *
+ * @param <E> entity type
+ * @param <PK> primary key type
+ */
+public class AsyncGenericDAO<E, PK extends Serializable & Comparable<PK>> implements AsyncIGDAO<E, PK> {
+    private final EntityManagerFactory emf;
+    private final EntityManagerFactory replicaEmf;
+    private final Executor executor;
+    private final BiFunction<EntityManager, EntityManager, IGDAO<E, PK>> daoFactory;
+
+    public AsyncGenericDAO(@NotNull EntityManagerFactory emf, @NotNull Executor executor,
+                           @NotNull Function<EntityManager, IGDAO<E, PK>> daoFactory) {
+        this(emf, null, executor, (em, replica) -> daoFactory.apply(em));
+        requireNonNull(daoFactory, "daoFactory");
+    }
+
+    /**
+     * @param replicaEmf factory of the read replica, or null if the DAO reads from {@code emf}
+     * @param daoFactory builds the DAO from the primary entity manager and the replica, the replica is null
+     *                   within {@link #submitInTransaction(Function) transaction} or without {@code replicaEmf}
+     */
+    public AsyncGenericDAO(@NotNull EntityManagerFactory emf, EntityManagerFactory replicaEmf, @NotNull Executor executor,
+                           @NotNull BiFunction<EntityManager, EntityManager, IGDAO<E, PK>> daoFactory) {
+        this.emf = requireNonNull(emf, "emf");
+        this.replicaEmf = replicaEmf;
+        this.executor = requireNonNull(executor, "executor");
+        this.daoFactory = requireNonNull(daoFactory, "daoFactory");
+    }
+
+    @Override
+    @NotNull
+    public
+    CompletableFuture<E> load(@NotNull PK id) {
+        return submit(dao -> dao.load(id));
+    }
+
+    @Override
+    @NotNull
+    public
+    CompletableFuture<LoadResult<E, PK>> loadAllById(@NotNull Collection<PK> ids) {
+        return submit(dao -> dao.loadAllById(ids));
+    }
+
+    @Override
+    @NotNull
+    public
+    CompletableFuture<List<E>> loadAll(@NotNull Where<E> predicate) {
+        return submit(dao -> dao.loadAll(predicate));
+    }
+
+    @Override
+    @NotNull
+    public
+    CompletableFuture<Page<E>> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate) {
+        return submit(dao -> dao.loadPage(pagingOffset, pageSize, predicate));
+    }
+
+    @Override
+    @NotNull
+    public
+    CompletableFuture<Long> count(@NotNull Where<E> predicate) {
+        return submit(dao -> dao.count(predicate));
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> CompletableFuture<T> submit(@NotNull Function<IGDAO<E, PK>, T> operation) {
+        return async(() -> {
+            EntityManager em = emf.createEntityManager();
+            EntityManager replica = null;
+            try {
+                replica = replicaEmf == null ? null : replicaEmf.createEntityManager();
+                return operation.apply(daoFactory.apply(em, replica));
+            } finally {
+                if (replica != null) {
+                    replica.close();
+                }
+                em.close();
+            }
+        });
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> CompletableFuture<T> submitInTransaction(@NotNull Function<IGDAO<E, PK>, T> operation) {
+        return async(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                EntityTransaction transaction = resourceLocalTransaction(em);
+                return transaction == null ? inJtaTransaction(em, operation) : inTransaction(em, transaction, operation);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Runs the task in the executor with the read-only mode and the deadline of the calling thread.
+     */
+    private <T> CompletableFuture<T> async(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(BaseDaoImpl.withOperationState(() -> {
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <T> T inTransaction(EntityManager em, EntityTransaction transaction, Function<IGDAO<E, PK>, T> operation) {
+        try {
+            transaction.begin();
+            T result = operation.apply(daoFactory.apply(em, null));
+            transaction.commit();
+            return result;
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+    }
+
+    private <T> T inJtaTransaction(EntityManager em, Function<IGDAO<E, PK>, T> operation) {
+        UserTransaction transaction = getUserTransaction();
+        try {
+            transaction.begin();
+            try {
+                em.joinTransaction();
+                T result = operation.apply(daoFactory.apply(em, null));
+                transaction.commit();
+                return result;
+            } finally {
+                if (transaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    transaction.rollback();
+                }
+            }
+        } catch (NotSupportedException | SystemException | RollbackException | HeuristicMixedException
+                | HeuristicRollbackException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * @return resource-local transaction, or null if the entity manager uses JTA
+     */
+    private static EntityTransaction resourceLocalTransaction(EntityManager em) {
+        try {
+            return em.getTransaction();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Transaction of {@link #submitInTransaction(Function)} if the persistence unit uses JTA.
+     * Looks up {@code java:comp/UserTransaction} in the thread of the executor by default.
+     */
+    protected UserTransaction getUserTransaction() {
+        try {
+            return (UserTransaction) new InitialContext().lookup("java:comp/UserTransaction");
+        } catch (NamingException e) {
+            throw new TransactionRequiredException("JTA transaction is not available in the executor: "
+                    + e.getLocalizedMessage());
+        }
+    }
+}
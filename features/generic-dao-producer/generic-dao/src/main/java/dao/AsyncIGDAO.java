@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non-blocking variant of {@link IGDAO}. Every operation runs asynchronously in its own
+ * {@link javax.persistence.EntityManager} which is closed when the operation completes,
+ * therefore the returned entities are detached. The operation runs in the
+ * {@link BaseDao#readOnly(java.util.function.Supplier) read-only mode} and with the
+ * {@link BaseDao#withDeadline(java.time.Duration, java.util.function.Supplier) deadline} of the calling thread.
+ * If the executor rejects the operation, the returned future completes exceptionally with
+ * {@link java.util.concurrent.RejectedExecutionException}; the caller never runs the operation itself.
+ *
+ * @param <E> entity type
+ * @param <PK> primary key type
+ */
+public interface AsyncIGDAO<E, PK extends Serializable & Comparable<PK>> {
+
+    /**
+     * @see IGDAO#load(Serializable)
+     */
+    @NotNull
+    CompletableFuture<E> load(@NotNull PK id);
+
+    /**
+     * @see IGDAO#loadAllById(Collection)
+     */
+    @NotNull
+    CompletableFuture<LoadResult<E, PK>> loadAllById(@NotNull Collection<PK> ids);
+
+    /**
+     * @see BaseDao#loadAll(Where)
+     */
+    @NotNull
+    CompletableFuture<List<E>> loadAll(@NotNull Where<E> predicate);
+
+    /**
+     * @see BaseDao#loadPage(int, int, Where)
+     */
+    @NotNull
+    CompletableFuture<Page<E>> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate);
+
+    /**
+     * @see BaseDao#count(Where)
+     */
+    @NotNull
+    CompletableFuture<Long> count(@NotNull Where<E> predicate);
+
+    /**
+     * Runs any read operation with blocking DAO bound to new entity manager.
+     */
+    @NotNull
+    <T> CompletableFuture<T> submit(@NotNull Function<IGDAO<E, PK>, T> operation);
+
+    /**
+     * Runs the operation with blocking DAO bound to new entity manager within new transaction, resource-local one
+     * or JTA {@link javax.transaction.UserTransaction} if the persistence unit uses JTA.
+     * The transaction is rolled back if the operation throws exception.
+     */
+    @NotNull
+    <T> CompletableFuture<T> submitInTransaction(@NotNull Function<IGDAO<E, PK>, T> operation);
+}
@@ -19,8 +19,14 @@
 package dao;
 
 import com.querydsl.core.FilteredClause;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.dml.SQLInsertClause;
 
 import javax.persistence.LockModeType;
 import javax.validation.constraints.Min;
@@ -28,12 +34,16 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Iterator;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 interface BaseDao<E> extends Serializable {
 
@@ -150,6 +160,96 @@ interface BaseDao<E> extends Serializable {
      */
     void save(@NotNull Supplier<E> newInstance);
 
+    /**
+     * Persists the <tt>newInstances</tt> in batches. The persistence context is flushed and cleared
+     * after every {@code batchSize} entities, therefore all entities attached before the call become detached.
+     * The statements are sent in JDBC batches if the persistence unit enables batching, e.g. Hibernate properties
+     * <em>hibernate.jdbc.batch_size</em> (at least {@code batchSize}) and <em>hibernate.order_inserts</em>.
+     * Hibernate does not batch inserts of entities with <code>GenerationType.IDENTITY</code>.
+     *
+     * @return number of persisted entities
+     */
+    @Min(0)
+    long saveAll(@NotNull Iterable<E> newInstances, @Min(1) int batchSize);
+
+    /**
+     * Merges the entities in batches. The persistence context is flushed and cleared after every
+     * {@code batchSize} entities, therefore all entities attached before the call become detached.
+     * The statements are sent in JDBC batches if the persistence unit enables batching, e.g. Hibernate properties
+     * <em>hibernate.jdbc.batch_size</em> and <em>hibernate.order_updates</em>.
+     *
+     * @return number of merged entities
+     */
+    @Min(0)
+    long mergeAll(@NotNull Iterable<E> mergeFrom, @Min(1) int batchSize);
+
+    /**
+     * Inserts the entity, or updates the row if the primary key already exists, by one native statement
+     * ({@code MERGE} in H2, Oracle and SQL Server, {@code ON CONFLICT} in PostgreSQL,
+     * {@code ON DUPLICATE KEY} in MySQL). The entity stays detached.
+     * Entity without primary key is persisted, entity managed by the persistence context is merged.
+     * Other databases and entities which are versioned, inherited or have embedded properties fall back
+     * to {@link #merge(Object)}.
+     */
+    void upsert(@NotNull E entity);
+
+    /**
+     * Upserts the entities in JDBC batches of {@value BaseDaoImpl#DEFAULT_UPSERT_BATCH_SIZE} statements,
+     * see {@link #upsertAll(Iterable, int)}.
+     */
+    @Min(0)
+    long upsertAll(@NotNull Iterable<E> entities);
+
+    /**
+     * Upserts the entities in JDBC batches of native statements, see {@link #upsert(Object)}.
+     * The fallback merges the entities in batches, see {@link #mergeAll(Iterable, int)}.
+     *
+     * @return number of upserted entities
+     */
+    @Min(0)
+    long upsertAll(@NotNull Iterable<E> entities, @Min(1) int batchSize);
+
+    /**
+     * Inserts the rows into the table {@code table} via JDBC on the connection of the persistence context.
+     * The rows are collected in batches of {@code chunkSize} and each batch is executed in one multi-row
+     * <em>INSERT</em> if the database supports it, otherwise as JDBC batch. Intended for append-only tables
+     * such as audit or event logs; the persistence context, entity listeners and second-level cache are bypassed.
+     *
+     * @param binder sets the column values of one row, e.g. {@code (insert, row) -> insert.set(table.id, row.id)}
+     * @return number of inserted rows
+     * @throws javax.persistence.PersistenceException if the JDBC connection cannot be obtained
+     */
+    @Min(0)
+    <T> long insertAll(@NotNull RelationalPath<?> table, @NotNull Iterable<T> rows,
+                       @NotNull BiConsumer<SQLInsertClause, T> binder, @Min(1) int chunkSize);
+
+    /**
+     * Inserts the beans into the table {@code table}. The bean properties are mapped to the columns
+     * of the same name, see {@link SQLInsertClause#populate(Object)}.
+     *
+     * @return number of inserted rows
+     * @see #insertAll(RelationalPath, Iterable, BiConsumer, int)
+     */
+    @Min(0)
+    long insertAll(@NotNull RelationalPath<?> table, @NotNull Iterable<?> beans, @Min(1) int chunkSize);
+
+    /**
+     * Imports the rows into the table {@code table} by the native bulk loader of the database:
+     * {@code CSVREAD} in H2, {@code COPY FROM STDIN} in PostgreSQL and {@code LOAD DATA LOCAL INFILE} in MySQL.
+     * The rows are streamed to the loader as CSV while the iterator is consumed. H2 reads the CSV from
+     * temporary file, therefore the database must run on this host. MySQL server must allow {@code local_infile}.
+     * Other databases and JDBC drivers without the bulk API fall back to
+     * {@link #insertAll(RelationalPath, Iterable, BiConsumer, int) insertAll}
+     * in chunks of {@value BaseDaoImpl#DEFAULT_IMPORT_CHUNK_SIZE} rows. The query timeout limits the import.
+     *
+     * @param columns columns of the table in the order of the values
+     * @param values values of one row in the order of {@code columns}
+     * @return number of imported rows
+     */
+    @Min(0)
+    <T> long importAll(@NotNull RelationalPath<?> table, @NotNull List<? extends Path<?>> columns,
+                       @NotNull Iterator<T> rows, @NotNull Function<T, Object[]> values);
+
     /**
      * Merges given changes to the returned object.
      *
@@ -181,6 +281,34 @@ interface BaseDao<E> extends Serializable {
     @NotNull
     List<E> loadAll(@NotNull Collection<Predicate> predicates);
 
+    /**
+     * @see #loadPage(int, int, Where)
+     */
+    @NotNull
+    Page<E> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize);
+
+    /**
+     * Loads the page of entities together with total number of entities matching the predicate.
+     * If the predicate only filters the entities, PostgreSQL, Oracle, SQL Server and H2 1.4.198+ count them
+     * by {@code COUNT(*) OVER()} within the page query ordered by the identifier, also beyond the last page.
+     * The predicate is translated to SQL unless it joins, groups, orders or binds a collection parameter.
+     * Otherwise the count query is executed only if the page itself does not reveal the total,
+     * i.e. unless the page is the last one.
+     */
+    @NotNull
+    Page<E> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate);
+
+    /**
+     * Loads the page of entities and estimates the total number of entities in the table from database statistics
+     * instead of counting the rows. Intended for very large tables. Falls back to exact count if the database
+     * does not provide the statistics. One more entity than the page size is loaded, so that
+     * {@link Page#hasNext()} is exact even if the estimate is stale.
+     *
+     * @see Page#isTotalEstimated()
+     */
+    @NotNull
+    Page<E> loadPageEstimated(@Min(0) int pagingOffset, @Min(1) int pageSize);
+
     @NotNull
     List<E> loadAll(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate);
 
@@ -191,12 +319,221 @@ interface BaseDao<E> extends Serializable {
 
     List<E> loadAll(@NotNull Function<E, Predicate> predicate);
 
+    /**
+     * Keyset (seek) pagination in ascending order of unique attribute {@code keyAttribute}.
+     *
+     * @see #loadAfter(String, Class, Order, Comparable, int, Where)
+     */
+    @NotNull
+    <K extends Comparable<? super K>>
+    KeysetPage<E, K> loadAfter(@NotNull String keyAttribute, @NotNull Class<K> keyType, K lastSeenKey, @Min(1) int pageSize);
+
+    /**
+     * Keyset (seek) pagination in ascending order of unique attribute {@code keyAttribute}.
+     *
+     * @see #loadAfter(String, Class, Order, Comparable, int, Where)
+     */
+    @NotNull
+    <K extends Comparable<? super K>>
+    KeysetPage<E, K> loadAfter(@NotNull String keyAttribute, @NotNull Class<K> keyType, K lastSeenKey, @Min(1) int pageSize,
+                               @NotNull Where<E> predicate);
+
+    /**
+     * Keyset (seek) pagination. Loads at most {@code pageSize} entities ordered by the attribute {@code keyAttribute}
+     * which follow after {@code lastSeenKey}. Unlike OFFSET paging, the cost of a deep page is the same as of the first one
+     * if the key is indexed.
+     *
+     * @param keyAttribute unique and not null attribute, e.g. primary key
+     * @param lastSeenKey  {@link KeysetPage#getContinuationKey() continuation key} of previous page,
+     *                     or null to load the first page
+     * @param predicate    filter which must not specify its own order
+     */
+    @NotNull
+    <K extends Comparable<? super K>>
+    KeysetPage<E, K> loadAfter(@NotNull String keyAttribute, @NotNull Class<K> keyType, @NotNull Order order, K lastSeenKey,
+                               @Min(1) int pageSize, @NotNull Where<E> predicate);
+
+    /**
+     * Loads the first {@code n} entities of every group in one query, e.g. the latest orders of every customer.
+     * The entities are ranked within the group by {@code orderAttribute} in the {@code order} and ties are broken
+     * by the primary key. Uses {@code ROW_NUMBER() OVER (PARTITION BY ...)} on PostgreSQL, Oracle, SQL Server
+     * and Teradata, and correlated subquery counting the preceding entities on the other databases; both return
+     * the same entities. The entities having NULL group form one group sorted after the other groups, and NULL values
+     * of {@code orderAttribute} rank after the other values in both orders.
+     * Entities are sorted by the group, then by the rank.
+     *
+     * @param groupAttribute single-column attribute
+     */
+    @NotNull
+    List<E> loadTopNPerGroup(@NotNull String groupAttribute, @NotNull String orderAttribute, @NotNull Order order,
+                             @Min(1) int n);
+
+    /**
+     * Loads the first {@code n} entities of every group among the entities matching the predicate.
+     * The predicate restricts the entities before they are ranked. On the databases supporting {@code ROW_NUMBER()}
+     * the predicate is translated to SQL restricting the ranked primary keys; the predicate binding a collection
+     * parameter is ranked by the correlated subquery. The correlated subquery repeats the predicate per entity
+     * and its cost grows with the square of the group size, therefore keep the groups small on the other databases.
+     *
+     * @param predicate filter which must not specify its own order
+     * @see #loadTopNPerGroup(String, String, Order, int)
+     */
+    @NotNull
+    List<E> loadTopNPerGroup(@NotNull Where<E> predicate, @NotNull String groupAttribute, @NotNull String orderAttribute,
+                             @NotNull Order order, @Min(1) int n);
+
     E load(@NotNull Where<E> predicate);
 
     E load(@NotNull BiConsumer<JPAQuery, E> predicate);
 
     E load(@NotNull Function<E, Predicate> predicate);
 
+    /**
+     * Compiles the query once for repeated calls on hot read paths.
+     * Values varying per call are {@link com.querydsl.core.types.dsl.Param parameters} bound
+     * by {@link PreparedQuery#set(com.querydsl.core.types.ParamExpression, Object)}.
+     */
+    @NotNull
+    PreparedQuery<E> prepare(@NotNull Where<E> predicate);
+
+    /**
+     * @see #prepare(Where)
+     */
+    @NotNull
+    PreparedQuery<E> prepare(@NotNull Function<E, Predicate> predicate);
+
+    /**
+     * Runs the operation in read-only mode. Entities loaded by any DAO of this thread within the operation are
+     * not dirty-checked and Hibernate does not retain their snapshots. The persistence context is not flushed
+     * before the queries. Modifications of loaded entities are not written to database.
+     */
+    <T> T readOnly(@NotNull Supplier<T> operation);
+
+    /**
+     * Runs the operation with a deadline. Every query, bulk and JDBC statement executed within the operation
+     * by any DAO of this thread gets the remaining time as query timeout, i.e. the hint
+     * <em>javax.persistence.query.timeout</em> or {@link java.sql.Statement#setQueryTimeout(int) JDBC query timeout},
+     * and the database cancels the statement running out of time. Entities loaded by primary key, which are
+     * not in the persistence context yet, are selected by a query with the timeout instead of
+     * {@link javax.persistence.EntityManager#find(Class, Object) find}. The statements flushed by the persistence
+     * context are not limited. JDBC timeouts have the granularity of seconds, therefore the remaining time
+     * is rounded up to whole seconds. Nested deadline cannot extend the outer one.
+     *
+     * @throws javax.persistence.QueryTimeoutException if the statement timed out or the deadline passed before
+     *         the statement started
+     */
+    <T> T withDeadline(@NotNull Duration timeout, @NotNull Supplier<T> operation);
+
+    /**
+     * @return {@code true} if this DAO {@link #readOnly(Supplier) loads entities read-only}
+     */
+    boolean isReadOnly();
+
+    /**
+     * Loads the projection instead of whole entities, e.g. DTO by {@link com.querydsl.core.types.Projections}
+     * or {@link com.querydsl.core.Tuple}. The entities are not hydrated and do not enter the persistence context.
+     *
+     * @param projection builds the select expression from the entity path
+     */
+    @NotNull
+    <T> List<T> loadAll(@NotNull Where<E> predicate, @NotNull Function<PathBuilder<E>, Expression<T>> projection);
+
+    /**
+     * @see #loadAll(Where, Function)
+     */
+    @NotNull
+    <T> List<T> loadAll(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate,
+                        @NotNull Function<PathBuilder<E>, Expression<T>> projection);
+
+    /**
+     * @see #loadAll(Where, Function)
+     * @see #loadPage(int, int, Where)
+     */
+    @NotNull
+    <T> Page<T> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate,
+                         @NotNull Function<PathBuilder<E>, Expression<T>> projection);
+
+    /**
+     * Streams the projection through a server-side cursor.
+     * The stream holds an open cursor and must be closed, e.g. in <em>try-with-resources</em>.
+     *
+     * @see #loadAll(Where, Function)
+     */
+    @NotNull
+    <T> Stream<T> stream(@NotNull Where<E> predicate, @NotNull Function<PathBuilder<E>, Expression<T>> projection);
+
+    /**
+     * Aggregates the entities in the database, e.g. {@code e -> Projections.tuple(e.getString("type"), e.count())}
+     * grouped by {@code e -> singletonList(e.getString("type"))}. The predicate may add <em>having</em> and
+     * <em>order by</em> clauses to the query.
+     *
+     * @param groupBy builds the group-by expressions from the entity path, empty list aggregates all entities
+     * @param aggregation builds the select expression of one group, e.g. by {@code count()}, {@code sum()}, {@code max()}
+     */
+    @NotNull
+    <T> List<T> aggregate(@NotNull Where<E> predicate,
+                          @NotNull Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                          @NotNull Function<PathBuilder<E>, Expression<T>> aggregation);
+
+    /**
+     * Loads one page of groups. The groups are ordered by the group-by expressions unless the predicate orders them.
+     *
+     * @see #aggregate(Where, Function, Function)
+     */
+    @NotNull
+    <T> List<T> aggregate(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate,
+                          @NotNull Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                          @NotNull Function<PathBuilder<E>, Expression<T>> aggregation);
+
+    /**
+     * Streams the groups through a server-side cursor.
+     * The stream holds an open cursor and must be closed, e.g. in <em>try-with-resources</em>.
+     *
+     * @see #aggregate(Where, Function, Function)
+     */
+    @NotNull
+    <T> Stream<T> streamAggregate(@NotNull Where<E> predicate,
+                                  @NotNull Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                                  @NotNull Function<PathBuilder<E>, Expression<T>> aggregation);
+
+    /**
+     * Streams the entities through a server-side cursor instead of loading the whole result set on heap.
+     * Every entity is detached from the persistence context after it has passed through the stream pipeline,
+     * and the persistence context is cleared every {@link BaseDaoImpl#getFetchSize() fetch size} rows, which detaches
+     * also the associations loaded with the entities. The changes pending in the transaction are flushed before.
+     * The stream holds an open cursor and must be closed, e.g. in <em>try-with-resources</em>.
+     */
+    @NotNull
+    Stream<E> stream(@NotNull Where<E> predicate);
+
+    /**
+     * @see #stream(Where)
+     */
+    @NotNull
+    Stream<E> stream(@NotNull Function<E, Predicate> predicate);
+
+    /**
+     * @see #stream(Where)
+     */
+    @NotNull
+    Stream<E> stream(@NotNull Collection<Predicate> predicates);
+
+    /**
+     * Scrolls the entities one by one and detaches each entity after the {@code action} has consumed it.
+     * Heap usage is flat regardless of the number of rows.
+     */
+    void forEach(@NotNull Where<E> predicate, @NotNull Consumer<E> action);
+
+    /**
+     * @see #forEach(Where, Consumer)
+     */
+    void forEach(@NotNull Function<E, Predicate> predicate, @NotNull Consumer<E> action);
+
+    /**
+     * @see #forEach(Where, Consumer)
+     */
+    void forEach(@NotNull Collection<Predicate> predicates, @NotNull Consumer<E> action);
+
     long delete(@NotNull BiConsumer<FilteredClause<?>, E> predicate);
 
     /**
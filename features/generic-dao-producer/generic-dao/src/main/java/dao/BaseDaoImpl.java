@@ -18,9 +18,17 @@
  */
 package dao;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.FilteredClause;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.ComparablePath;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.JPAQueryBase;
 import com.querydsl.jpa.impl.JPADeleteClause;
@@ -34,6 +42,8 @@ import com.querydsl.sql.MySQLTemplates;
 import com.querydsl.sql.OracleTemplates;
 import com.querydsl.sql.PostgreSQLTemplates;
 import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
 import com.querydsl.sql.SQLQuery;
 import com.querydsl.sql.SQLServer2005Templates;
 import com.querydsl.sql.SQLServer2012Templates;
@@ -43,37 +53,84 @@ import com.querydsl.sql.SQLiteTemplates;
 import com.querydsl.sql.TeradataTemplates;
 import com.querydsl.sql.dml.SQLInsertClause;
 
+import javax.persistence.CascadeType;
+import javax.persistence.EntityListeners;
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.PostRemove;
+import javax.persistence.PreRemove;
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.Table;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.querydsl.core.alias.Alias.alias;
 import static com.querydsl.sql.SQLTemplates.DEFAULT;
 import static java.beans.Introspector.decapitalize;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static java.util.Objects.requireNonNull;
+import static java.util.Spliterator.ORDERED;
+import static java.util.stream.Collectors.toList;
 
 abstract class BaseDaoImpl<E> implements BaseDao<E> {
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+    private static final int DEFAULT_FETCH_SIZE = 512;
+    private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+    private static final ThreadLocal<Boolean> READ_ONLY_OPERATION = new ThreadLocal<>();
+    private static final String TOTAL_COUNT_COLUMN = "total_count_";
+    private static final String ROW_NUMBER_COLUMN = "row_number_";
+    private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+    private static final int DEFAULT_IN_LIST_SIZE = 1000;
+    static final int DEFAULT_UPSERT_BATCH_SIZE = 100;
+    static final int DEFAULT_IMPORT_CHUNK_SIZE = 1000;
+    private static final int SQL_SERVER_IN_LIST_SIZE = 2000;
 
     /**
      * The type of entity the dao is able to work with.
@@ -81,6 +138,7 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
      * @serial
      */
     private final Class<E> entityType;
+    private transient volatile Boolean bulkDeletable;
 
     /**
      * Used only in constructor of {@link GenericDAO}.
@@ -116,6 +174,43 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     protected abstract
     EntityManager em();
 
+    /**
+     * Entity manager of read replica. The replica may lag behind the primary database.
+     *
+     * @return null (default) if the DAO reads from {@link #em()}
+     */
+    protected EntityManager replicaEm() {
+        return null;
+    }
+
+    /**
+     * @see DAO#replicaReads()
+     */
+    @NotNull
+    protected ReplicaReads replicaReads() {
+        return ReplicaReads.OUTSIDE_TRANSACTION;
+    }
+
+    /**
+     * Entity manager of queries which neither lock nor modify the entities. Entities loaded from the
+     * {@link #replicaEm() replica} are not managed by {@link #em()}, the write methods treat them as detached
+     * and {@link #delete(Object)} merges them into {@link #em()} first. The methods modifying the entity
+     * by primary key always load it by {@link #em()}.
+     *
+     * @return replica if {@link #replicaReads() the policy} allows, otherwise the primary entity manager
+     */
+    @NotNull
+    protected EntityManager readEm() {
+        EntityManager replica = replicaEm();
+        if (replica == null) {
+            return em();
+        }
+        EntityManager primary = em();
+        boolean replicated = !primary.isJoinedToTransaction()
+                && (replicaReads() == ReplicaReads.OUTSIDE_TRANSACTION || isReadOnly());
+        return replicated ? replica : primary;
+    }
+
     Query<E> createQuery() {
         return new Query<>(newQuery(), newQueryEntity(), alias(getEntityType()));
     }
@@ -126,6 +221,84 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
         return entityType;
     }
 
+    /**
+     * @return name of the attribute annotated with {@link javax.persistence.Id}
+     */
+    @NotNull
+    protected
+    String getIdAttributeName() {
+        EntityType<E> type = em().getMetamodel().entity(getEntityType());
+        return type.getId(type.getIdType().getJavaType()).getName();
+    }
+
+    /**
+     * @return attribute annotated with {@link javax.persistence.Version}, or null if the entity is not versioned
+     */
+    protected
+    SingularAttribute<? super E, ?> getVersionAttribute() {
+        EntityType<E> type = em().getMetamodel().entity(getEntityType());
+        if (!type.hasVersionAttribute()) {
+            return null;
+        }
+        return type.getSingularAttributes()
+                .stream()
+                .filter(SingularAttribute::isVersion)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * The entity can be deleted by bulk statement if removing the entity through the persistence context
+     * would not do anything more than deleting the row: the entity has no collections or element collections,
+     * no association cascading the removal or removing orphans, and no removal callbacks.
+     */
+    protected boolean isBulkDeletable() {
+        Boolean deletable = bulkDeletable;
+        if (deletable == null) {
+            EntityType<E> type = em().getMetamodel().entity(getEntityType());
+            deletable = type.getPluralAttributes().isEmpty()
+                    && type.getSingularAttributes()
+                    .stream()
+                    .filter(Attribute::isAssociation)
+                    .map(Attribute::getJavaMember)
+                    .noneMatch(BaseDaoImpl::cascadesRemoval)
+                    && !hasRemovalCallbacks(getEntityType());
+            bulkDeletable = deletable;
+        }
+        return deletable;
+    }
+
+    private static boolean cascadesRemoval(Member member) {
+        if (!(member instanceof AnnotatedElement)) {
+            return true;
+        }
+        AnnotatedElement association = (AnnotatedElement) member;
+        OneToOne oneToOne = association.getAnnotation(OneToOne.class);
+        if (oneToOne != null) {
+            return oneToOne.orphanRemoval() || cascadesRemoval(oneToOne.cascade());
+        }
+        ManyToOne manyToOne = association.getAnnotation(ManyToOne.class);
+        return manyToOne != null && cascadesRemoval(manyToOne.cascade());
+    }
+
+    private static boolean cascadesRemoval(CascadeType... cascades) {
+        return Arrays.stream(cascades).anyMatch(cascade -> cascade == CascadeType.ALL || cascade == CascadeType.REMOVE);
+    }
+
+    private static boolean hasRemovalCallbacks(Class<?> entityType) {
+        for (Class<?> type = entityType; type != null && type != Object.class; type = type.getSuperclass()) {
+            if (type.isAnnotationPresent(EntityListeners.class)) {
+                return true;
+            }
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PreRemove.class) || method.isAnnotationPresent(PostRemove.class)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @NotNull
     protected
     PathBuilder<E> newQueryEntity() {
@@ -141,7 +314,235 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @NotNull
     protected
     JPAQuery<E> newQuery() {
-        return new JPAQuery<>(em());
+        return newQuery(readEm());
+    }
+
+    JPAQuery<E> newQuery(EntityManager em) {
+        JPAQuery<E> q = new JPAQuery<>(em);
+        Integer timeout = getQueryTimeout();
+        if (timeout != null) {
+            q.setHint(QUERY_TIMEOUT_HINT, timeout);
+        }
+        if (isReadOnly()) {
+            q.setHint(READ_ONLY_HINT, true)
+                    .setFlushMode(FlushModeType.COMMIT);
+        }
+        return q;
+    }
+
+    /**
+     * Applies the read-only hint of {@link #newQuery(EntityManager)} to the query created by the entity manager.
+     */
+    <Q extends javax.persistence.Query> Q withReadOnly(Q query) {
+        if (isReadOnly()) {
+            query.setHint(READ_ONLY_HINT, true)
+                    .setFlushMode(FlushModeType.COMMIT);
+        }
+        return query;
+    }
+
+    /**
+     * Per DAO read-only mode. Override in order to load all entities read-only.
+     *
+     * @return {@code true} within {@link #readOnly(Supplier)}, otherwise {@code false}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return READ_ONLY_OPERATION.get() != null;
+    }
+
+    @Override
+    public <T> T readOnly(@NotNull Supplier<T> operation) {
+        if (READ_ONLY_OPERATION.get() != null) {
+            return operation.get();
+        }
+        EntityManager em = em();
+        FlushModeType flushMode = em.getFlushMode();
+        Boolean defaultReadOnly = HibernateSupport.isAvailable() ? defaultReadOnly(em, true) : null;
+        READ_ONLY_OPERATION.set(Boolean.TRUE);
+        em.setFlushMode(FlushModeType.COMMIT);
+        try {
+            return operation.get();
+        } finally {
+            READ_ONLY_OPERATION.remove();
+            em.setFlushMode(flushMode);
+            if (defaultReadOnly != null) {
+                defaultReadOnly(em, defaultReadOnly);
+            }
+        }
+    }
+
+    @Override
+    public <T> T withDeadline(@NotNull Duration timeout, @NotNull Supplier<T> operation) {
+        Long outer = DEADLINE.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (outer == null || deadline - outer < 0) {
+            DEADLINE.set(deadline);
+        }
+        try {
+            return operation.get();
+        } finally {
+            if (outer == null) {
+                DEADLINE.remove();
+            } else {
+                DEADLINE.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Carries the {@link #readOnly(Supplier) read-only mode} and the {@link #withDeadline(Duration, Supplier) deadline}
+     * of the calling thread over to an operation running in another thread.
+     */
+    static Runnable withOperationState(Runnable operation) {
+        Boolean readOnly = READ_ONLY_OPERATION.get();
+        Long deadline = DEADLINE.get();
+        return () -> {
+            Boolean outerReadOnly = READ_ONLY_OPERATION.get();
+            Long outerDeadline = DEADLINE.get();
+            setOrRemove(READ_ONLY_OPERATION, readOnly);
+            setOrRemove(DEADLINE, deadline);
+            try {
+                operation.run();
+            } finally {
+                setOrRemove(READ_ONLY_OPERATION, outerReadOnly);
+                setOrRemove(DEADLINE, outerDeadline);
+            }
+        };
+    }
+
+    private static <T> void setOrRemove(ThreadLocal<T> local, T value) {
+        if (value == null) {
+            local.remove();
+        } else {
+            local.set(value);
+        }
+    }
+
+    /**
+     * Time remaining until the deadline of {@link #withDeadline(Duration, Supplier)} rounded up to whole seconds.
+     *
+     * @return milliseconds, or null if there is no deadline
+     * @throws QueryTimeoutException if the deadline has passed
+     */
+    protected Integer getQueryTimeout() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return null;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new QueryTimeoutException("deadline passed before the statement started");
+        }
+        long seconds = Math.min(TimeUnit.NANOSECONDS.toSeconds(remaining - 1) + 1, Integer.MAX_VALUE / 1000);
+        return (int) TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    <Q extends javax.persistence.Query> Q withQueryTimeout(Q query) {
+        Integer timeout = getQueryTimeout();
+        if (timeout != null) {
+            query.setHint(QUERY_TIMEOUT_HINT, timeout);
+        }
+        return query;
+    }
+
+    void withQueryTimeout(Statement statement) throws SQLException {
+        Integer timeout = getQueryTimeout();
+        if (timeout != null) {
+            statement.setQueryTimeout((int) TimeUnit.MILLISECONDS.toSeconds(timeout));
+        }
+    }
+
+    /**
+     * Query DSL clauses create the queries internally, therefore the entity manager applies the query timeout.
+     */
+    private EntityManager withQueryTimeout(EntityManager em) {
+        if (DEADLINE.get() == null) {
+            return em;
+        }
+        return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[] {EntityManager.class}, (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(em, args);
+                        return result instanceof javax.persistence.Query
+                                ? withQueryTimeout((javax.persistence.Query) result) : result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static Boolean defaultReadOnly(EntityManager em, boolean readOnly) {
+        try {
+            return HibernateSupport.defaultReadOnly(em, readOnly);
+        } catch (PersistenceException e) {
+            // not Hibernate persistence provider
+            return null;
+        }
+    }
+
+    /**
+     * Excludes the entity managed by {@code em} from dirty checking if this DAO {@link #isReadOnly() is read-only}.
+     * Entities loaded by queries are read-only due to query hint.
+     */
+    protected E markReadOnly(EntityManager em, E entity) {
+        if (entity != null && isReadOnly() && HibernateSupport.isAvailable() && em.contains(entity)) {
+            try {
+                HibernateSupport.readOnly(em, entity);
+            } catch (PersistenceException e) {
+                // not Hibernate persistence provider
+                return entity;
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Number of rows fetched by JDBC driver in one round trip while scrolling the cursor
+     * in {@link #stream(Where)} and {@link #forEach(Where, Consumer)}.
+     */
+    @Min(1)
+    protected int getFetchSize() {
+        return DEFAULT_FETCH_SIZE;
+    }
+
+    /**
+     * Maximal number of values bound to one {@code IN} restriction.
+     * Oracle does not accept more than 1000 expressions in the list and SQL Server
+     * does not accept more than 2100 parameters in one statement.
+     */
+    @Min(1)
+    protected int getInListChunkSize() {
+        try {
+            return doWithConnection(BaseDaoImpl::findTemplates) instanceof SQLServerTemplates
+                    ? SQL_SERVER_IN_LIST_SIZE : DEFAULT_IN_LIST_SIZE;
+        } catch (SQLException | PersistenceException e) {
+            return DEFAULT_IN_LIST_SIZE;
+        }
+    }
+
+    /**
+     * Evicts the entities from the {@link EntityCache caches} of all DAOs of this entity type.
+     * Changes flushed by the persistence context invalidate the caches by themselves,
+     * bulk and native statements bypass the persistence context.
+     *
+     * @param ids modified entities, or null if any entity may have been modified
+     */
+    void invalidateCaches(Collection<?> ids) {
+        if (HibernateSupport.isAvailable()) {
+            try {
+                HibernateSupport.invalidate(em(), getEntityType(), ids);
+            } catch (PersistenceException e) {
+                // not Hibernate persistence provider
+            }
+        }
+    }
+
+    /**
+     * Called after bulk update or delete statement which may have modified any entity.
+     */
+    protected void afterBulkWrite() {
+        invalidateCaches(null);
     }
 
     @NotNull
@@ -153,13 +554,13 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @NotNull
     protected
     JPADeleteClause newDeleteClause(@NotNull EntityPath<?> q) {
-        return new JPADeleteClause(em(), q);
+        return new JPADeleteClause(withQueryTimeout(em()), q);
     }
 
     @NotNull
     protected
     JPAUpdateClause newUpdateClause(@NotNull EntityPath<?> q) {
-        return new JPAUpdateClause(em(), q);
+        return new JPAUpdateClause(withQueryTimeout(em()), q);
     }
 
     @NotNull
@@ -176,6 +577,11 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
         return new SQLInsertClause(connection, findTemplates(connection), q);
     }
 
+    /**
+     * The clause is bound to the connection {@link EntityManager#unwrap(Class) unwrapped} from the entity manager.
+     * Use {@link #newSQLInsertClause(Connection, RelationalPath)} within {@link #doWithConnection(JdbcWork)}
+     * if the persistence provider does not unwrap the connection.
+     */
     @NotNull
     protected
     SQLInsertClause newSQLInsertClause(@NotNull RelationalPath<?> q) throws SQLException {
@@ -185,6 +591,35 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
         return new SQLInsertClause(connection, findTemplates(connection), q);
     }
 
+    /**
+     * Runs the work on the JDBC connection of the persistence context. The connection is valid only
+     * while the work runs and must not be closed. Hibernate cannot {@link EntityManager#unwrap(Class) unwrap}
+     * the connection, therefore the work runs within Hibernate session.
+     *
+     * @throws PersistenceException if the persistence provider does not expose the connection
+     */
+    protected
+    <T> T doWithConnection(@NotNull JdbcWork<T> work) throws SQLException {
+        EntityManager em = em();
+        if (HibernateSupport.isAvailable()) {
+            try {
+                return HibernateSupport.doWork(em, work);
+            } catch (PersistenceException e) {
+                // not Hibernate persistence provider
+                return work.execute(em.unwrap(Connection.class));
+            }
+        }
+        return work.execute(em.unwrap(Connection.class));
+    }
+
+    /**
+     * JDBC work on the connection of the persistence context, see {@link #doWithConnection(JdbcWork)}.
+     */
+    @FunctionalInterface
+    protected interface JdbcWork<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
     @NotNull
     protected
     SQLQuery newSQLQuery(@NotNull Connection connection, @NotNull SQLTemplates templates) {
@@ -361,7 +796,200 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
      */
     @Override
     public void save(@NotNull Supplier<E> newInstance) {
-        em().persist(newInstance.get());
+        save(newInstance.get());
+    }
+
+    @Override
+    @Min(0)
+    public long saveAll(@NotNull Iterable<E> newInstances, @Min(1) int batchSize) {
+        final EntityManager em = em();
+        return inBatches(em, newInstances, batchSize, em::persist);
+    }
+
+    @Override
+    @Min(0)
+    public long mergeAll(@NotNull Iterable<E> mergeFrom, @Min(1) int batchSize) {
+        final EntityManager em = em();
+        return inBatches(em, mergeFrom, batchSize, em::merge);
+    }
+
+    @Override
+    public void upsert(@NotNull E entity) {
+        upsertAll(singletonList(entity), 1);
+    }
+
+    @Override
+    @Min(0)
+    public long upsertAll(@NotNull Iterable<E> entities) {
+        return upsertAll(entities, DEFAULT_UPSERT_BATCH_SIZE);
+    }
+
+    @Override
+    @Min(0)
+    public long upsertAll(@NotNull Iterable<E> entities, @Min(1) int batchSize) {
+        EntityManager em = em();
+        HibernateSupport.UpsertColumns columns =
+                HibernateSupport.isAvailable() ? HibernateSupport.upsertColumns(em, getEntityType()) : null;
+        try {
+            String upsert = columns == null ? null : NativeSql.upsertStatement(doWithConnection(BaseDaoImpl::findTemplates),
+                    columns.getTable(), columns.getIdColumns(), columns.getColumns());
+            if (upsert == null) {
+                return mergeAll(entities, batchSize);
+            }
+
+            // the native statements must see the pending changes
+            em.flush();
+            PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+            long count = 0;
+            List<E> batch = new ArrayList<>();
+            for (E e : entities) {
+                Object id = util.getIdentifier(e);
+                if (id == null) {
+                    em.persist(e);
+                } else if (HibernateSupport.managed(em, getEntityType(), (Serializable) id) != null) {
+                    em.merge(e);
+                } else {
+                    batch.add(e);
+                    if (batch.size() == batchSize) {
+                        executeUpsert(upsert, columns, batch);
+                        batch.clear();
+                    }
+                }
+                count++;
+            }
+            if (!batch.isEmpty()) {
+                executeUpsert(upsert, columns, batch);
+            }
+            em.flush();
+            return count;
+        } catch (SQLException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    private void executeUpsert(String upsert, HibernateSupport.UpsertColumns columns, List<E> batch)
+            throws SQLException {
+        EntityManager em = em();
+        doWithConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(upsert)) {
+                withQueryTimeout(statement);
+                for (E e : batch) {
+                    columns.bind(em, statement, e);
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        invalidateCaches(batch.stream()
+                .map(util::getIdentifier)
+                .collect(toList()));
+    }
+
+    /**
+     * Auto flush is suspended during the call so that the statements are flushed only in complete batches.
+     */
+    private long inBatches(EntityManager em, Iterable<E> entities, int batchSize, Consumer<E> operation) {
+        FlushModeType flushMode = em.getFlushMode();
+        em.setFlushMode(FlushModeType.COMMIT);
+        try {
+            long count = 0;
+            for (E e : entities) {
+                operation.accept(e);
+                count++;
+                if (count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            if (count % batchSize != 0) {
+                em.flush();
+                em.clear();
+            }
+            return count;
+        } finally {
+            em.setFlushMode(flushMode);
+        }
+    }
+
+    @Override
+    @Min(0)
+    public
+    <T> long insertAll(@NotNull RelationalPath<?> table, @NotNull Iterable<T> rows,
+                       @NotNull BiConsumer<SQLInsertClause, T> binder, @Min(1) int chunkSize) {
+        try {
+            return doWithConnection(connection -> insertAll(connection, table, rows, binder, chunkSize));
+        } catch (SQLException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    private <T> long insertAll(Connection connection, RelationalPath<?> table, Iterable<T> rows,
+                               BiConsumer<SQLInsertClause, T> binder, int chunkSize) throws SQLException {
+        SQLTemplates templates = findTemplates(connection);
+        long count = 0;
+        SQLInsertClause insert = null;
+        for (T row : rows) {
+            if (insert == null) {
+                insert = newSQLInsertClause(connection, templates, table);
+                insert.setBatchToBulk(true);
+                insert.addListener(new SQLBaseListener() {
+                    @Override
+                    public void preExecute(SQLListenerContext context) {
+                        for (Statement statement : context.getPreparedStatements()) {
+                            try {
+                                withQueryTimeout(statement);
+                            } catch (SQLException e) {
+                                throw new PersistenceException(e.getLocalizedMessage(), e);
+                            }
+                        }
+                    }
+                });
+            }
+            binder.accept(insert, row);
+            insert.addBatch();
+            if (insert.getBatchCount() == chunkSize) {
+                insert.execute();
+                count += chunkSize;
+                insert = null;
+            }
+        }
+        if (insert != null) {
+            count += insert.getBatchCount();
+            insert.execute();
+        }
+        return count;
+    }
+
+    @Override
+    @Min(0)
+    public long insertAll(@NotNull RelationalPath<?> table, @NotNull Iterable<?> beans, @Min(1) int chunkSize) {
+        return insertAll(table, beans, SQLInsertClause::populate, chunkSize);
+    }
+
+    @Override
+    @Min(0)
+    public
+    <T> long importAll(@NotNull RelationalPath<?> table, @NotNull List<? extends Path<?>> columns,
+                       @NotNull Iterator<T> rows, @NotNull Function<T, Object[]> values) {
+        try {
+            SQLTemplates templates = doWithConnection(BaseDaoImpl::findTemplates);
+            if (doWithConnection(connection -> BulkImport.isSupported(templates, connection))) {
+                return doWithConnection(connection ->
+                        BulkImport.importAll(connection, templates, table, columns, rows, values, this::withQueryTimeout));
+            }
+            return insertAll(table, () -> rows, (insert, row) -> bind(insert, columns, values.apply(row)),
+                    DEFAULT_IMPORT_CHUNK_SIZE);
+        } catch (SQLException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void bind(SQLInsertClause insert, List<? extends Path<?>> columns, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            insert.set((Path<Object>) columns.get(i), values[i]);
+        }
     }
 
     /**
@@ -385,7 +1013,7 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @NotNull
     public
     E merge(@NotNull Supplier<E> mergeFrom) {
-        return em().merge(mergeFrom.get());
+        return merge(mergeFrom.get());
     }
 
     /**
@@ -437,6 +1065,176 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
                 .fetch();
     }
 
+    @Override
+    @NotNull
+    public
+    Page<E> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize) {
+        return loadPage(pagingOffset, pageSize, (q, b, e) -> { });
+    }
+
+    @Override
+    @NotNull
+    public
+    Page<E> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate) {
+        PathBuilder<E> entity = newQueryEntity();
+        EntityManager em = readEm();
+
+        JPAQuery<E> q = newQuery(em).from(entity);
+
+        predicate.where(q, entity, alias(getEntityType(), entity));
+        if (isFilterOnly(q.getMetadata())) {
+            Page<E> page = loadPageCountingOver(em, q.clone().select(entity.get(getIdAttributeName())), pagingOffset,
+                    pageSize);
+            if (page != null) {
+                return page;
+            }
+        }
+        List<E> content = q.clone()
+                .offset(pagingOffset)
+                .limit(pageSize)
+                .fetch();
+        long total = isLastPage(content, pagingOffset, pageSize) ? pagingOffset + content.size() : q.fetchCount();
+        return new Page<>(content, pagingOffset, pageSize, total, false);
+    }
+
+    /**
+     * @return true if the query only filters the root entity, and the ordering and the number of entities are given
+     */
+    private static boolean isFilterOnly(QueryMetadata metadata) {
+        return metadata.getHaving() == null && metadata.getJoins().size() == 1 && metadata.getGroupBy().isEmpty()
+                && metadata.getOrderBy().isEmpty() && !metadata.isDistinct();
+    }
+
+    /**
+     * Loads the page of entities and counts them by {@code COUNT(*) OVER()} in one round trip.
+     *
+     * @param ids query selecting the identifiers of the entities matching the predicate
+     * @return the page, or null if the database, the mapping or the query does not support the window function
+     */
+    private Page<E> loadPageCountingOver(EntityManager em, JPAQuery<?> ids, int pagingOffset, int pageSize) {
+        if (!isWindowCountSupported()) {
+            return null;
+        }
+        String table = HibernateSupport.tableName(em, getEntityType());
+        String id = HibernateSupport.idColumn(em, getEntityType());
+        if (table == null || id == null) {
+            return null;
+        }
+        Integer timeout = getQueryTimeout();
+        List<Object[]> rows = HibernateSupport.loadTranslatedWithCounts(em, getEntityType(), ids.getMetadata(),
+                restriction -> NativeSql.countOverQuery(table, id, ROW_NUMBER_COLUMN, TOTAL_COUNT_COLUMN, restriction,
+                        pagingOffset, pageSize),
+                isReadOnly(), timeout == null ? null : (int) TimeUnit.MILLISECONDS.toSeconds(timeout),
+                ROW_NUMBER_COLUMN, TOTAL_COUNT_COLUMN);
+        if (rows == null) {
+            return null;
+        }
+        List<E> content = new ArrayList<>(rows.size());
+        long total = 0;
+        for (Object[] row : rows) {
+            long rowNumber = (Long) row[1];
+            total = (Long) row[2];
+            if (rowNumber <= (long) pagingOffset + pageSize && rowNumber > pagingOffset) {
+                // the last row is selected beyond the page
+                content.add(getEntityType().cast(row[0]));
+            }
+        }
+        return new Page<>(content, pagingOffset, pageSize, total, false);
+    }
+
+    boolean isWindowCountSupported() {
+        if (!HibernateSupport.isAvailable()) {
+            return false;
+        }
+        try {
+            return doWithConnection(connection ->
+                    NativeSql.isWindowCountSupported(findTemplates(connection), connection.getMetaData()));
+        } catch (SQLException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    @Override
+    @NotNull
+    public
+    Page<E> loadPageEstimated(@Min(0) int pagingOffset, @Min(1) int pageSize) {
+        // one more entity reveals the next page regardless of the estimate
+        List<E> content = new ArrayList<>(loadAll(pagingOffset, pageSize + 1));
+        boolean hasNext = content.size() > pageSize;
+        if (hasNext) {
+            content.remove(pageSize);
+        } else if (!content.isEmpty() || pagingOffset == 0) {
+            return new Page<>(content, pagingOffset, pageSize, pagingOffset + content.size(), false, false);
+        }
+        Long estimate = estimateRowCount();
+        if (estimate == null) {
+            return new Page<>(content, pagingOffset, pageSize, count(), false, hasNext);
+        }
+        long total = hasNext ? Math.max(estimate, pagingOffset + pageSize + 1L) : estimate;
+        return new Page<>(content, pagingOffset, pageSize, total, true, hasNext);
+    }
+
+    private static boolean isLastPage(List<?> content, int pagingOffset, int pageSize) {
+        return content.isEmpty() ? pagingOffset == 0 : content.size() < pageSize;
+    }
+
+    /**
+     * Reads the number of rows in the table of entity from database statistics.
+     *
+     * @return estimated number of rows, or null if the statistics are not available
+     */
+    protected Long estimateRowCount() {
+        try {
+            String table = getTableName();
+            return doWithConnection(connection -> {
+                SQLTemplates templates = findTemplates(connection);
+                String sql = NativeSql.rowCountEstimateQuery(templates);
+                if (sql == null || table == null) {
+                    return null;
+                }
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    if (templates instanceof PostgreSQLTemplates) {
+                        statement.setString(1, table.toLowerCase());
+                    } else if (templates instanceof OracleTemplates || templates instanceof H2Templates) {
+                        statement.setString(1, table.toUpperCase());
+                    } else {
+                        statement.setString(1, table);
+                    }
+                    try (ResultSet rows = statement.executeQuery()) {
+                        if (rows.next()) {
+                            long estimate = rows.getLong(1);
+                            return rows.wasNull() || estimate < 0 ? null : estimate;
+                        }
+                        return null;
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return table name without schema, or null if unknown
+     */
+    protected String getTableName() {
+        String table = null;
+        if (HibernateSupport.isAvailable()) {
+            try {
+                table = HibernateSupport.tableName(em(), getEntityType());
+            } catch (PersistenceException e) {
+                // not Hibernate persistence provider
+                table = null;
+            }
+        }
+        if (table == null) {
+            Table annotation = getEntityType().getAnnotation(Table.class);
+            table = annotation == null || annotation.name().isEmpty()
+                    ? em().getMetamodel().entity(getEntityType()).getName() : annotation.name();
+        }
+        return table.substring(table.lastIndexOf('.') + 1);
+    }
+
     @Override
     @NotNull
     public
@@ -463,6 +1261,116 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
         return q.fetch();
     }
 
+    @Override
+    @NotNull
+    public
+    <T> List<T> loadAll(@NotNull Where<E> predicate, @NotNull Function<PathBuilder<E>, Expression<T>> projection) {
+        return newProjectionQuery(predicate, projection).fetch();
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> List<T> loadAll(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate,
+                        @NotNull Function<PathBuilder<E>, Expression<T>> projection) {
+        return newProjectionQuery(predicate, projection)
+                .offset(pagingOffset)
+                .limit(pageSize)
+                .fetch();
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> Page<T> loadPage(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate,
+                         @NotNull Function<PathBuilder<E>, Expression<T>> projection) {
+        JPAQuery<T> q = newProjectionQuery(predicate, projection);
+        List<T> content = q.clone()
+                .offset(pagingOffset)
+                .limit(pageSize)
+                .fetch();
+        long total = isLastPage(content, pagingOffset, pageSize) ? pagingOffset + content.size() : q.fetchCount();
+        return new Page<>(content, pagingOffset, pageSize, total, false);
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> Stream<T> stream(@NotNull Where<E> predicate, @NotNull Function<PathBuilder<E>, Expression<T>> projection) {
+        return scroll(newProjectionQuery(predicate, projection), row -> { });
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> List<T> aggregate(@NotNull Where<E> predicate,
+                          @NotNull Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                          @NotNull Function<PathBuilder<E>, Expression<T>> aggregation) {
+        return newAggregateQuery(predicate, groupBy, aggregation).fetch();
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> List<T> aggregate(@Min(0) int pagingOffset, @Min(1) int pageSize, @NotNull Where<E> predicate,
+                          @NotNull Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                          @NotNull Function<PathBuilder<E>, Expression<T>> aggregation) {
+        JPAQuery<T> q = newAggregateQuery(predicate, groupBy, aggregation);
+        if (q.getMetadata().getOrderBy().isEmpty()) {
+            // stable order of groups across the pages
+            for (Expression<?> group : q.getMetadata().getGroupBy()) {
+                q.orderBy(orderSpecifier(Order.ASC, group));
+            }
+        }
+        return q.offset(pagingOffset)
+                .limit(pageSize)
+                .fetch();
+    }
+
+    @Override
+    @NotNull
+    public
+    <T> Stream<T> streamAggregate(@NotNull Where<E> predicate,
+                                  @NotNull Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                                  @NotNull Function<PathBuilder<E>, Expression<T>> aggregation) {
+        return scroll(newAggregateQuery(predicate, groupBy, aggregation), row -> { });
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> JPAQuery<T> newAggregateQuery(Where<E> predicate, Function<PathBuilder<E>, List<? extends Expression<?>>> groupBy,
+                                      Function<PathBuilder<E>, Expression<T>> aggregation) {
+        PathBuilder<E> entity = newQueryEntity();
+
+        JPAQuery<T> q = newQuery(readEm()).select(aggregation.apply(entity)).from(entity);
+
+        // group by first, the predicate may append having and order by clauses
+        q.groupBy(groupBy.apply(entity).toArray(new Expression<?>[0]));
+        predicate.where((JPAQueryBase<E, ?>) (JPAQueryBase<?, ?>) q, entity, alias(getEntityType(), entity));
+        return q;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static OrderSpecifier<?> orderSpecifier(Order order, Expression<?> expression) {
+        return new OrderSpecifier(order, expression);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> JPAQuery<T> newProjectionQuery(Where<E> predicate, Function<PathBuilder<E>, Expression<T>> projection) {
+        return newProjectionQuery(readEm(), predicate, projection);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> JPAQuery<T> newProjectionQuery(EntityManager em, Where<E> predicate,
+                                       Function<PathBuilder<E>, Expression<T>> projection) {
+        PathBuilder<E> entity = newQueryEntity();
+
+        JPAQuery<T> q = newQuery(em).select(projection.apply(entity)).from(entity);
+
+        // the predicate only restricts the query, the type of projection is not used
+        predicate.where((JPAQueryBase<E, ?>) (JPAQueryBase<?, ?>) q, entity, alias(getEntityType(), entity));
+        return q;
+    }
+
     @Override
     @NotNull
     public
@@ -484,6 +1392,71 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
                 .fetch();
     }
 
+    @Override
+    @NotNull
+    public
+    <K extends Comparable<? super K>>
+    KeysetPage<E, K> loadAfter(@NotNull String keyAttribute, @NotNull Class<K> keyType, K lastSeenKey, @Min(1) int pageSize) {
+        return loadAfter(keyAttribute, keyType, Order.ASC, lastSeenKey, pageSize, (q, b, e) -> { });
+    }
+
+    @Override
+    @NotNull
+    public
+    <K extends Comparable<? super K>>
+    KeysetPage<E, K> loadAfter(@NotNull String keyAttribute, @NotNull Class<K> keyType, K lastSeenKey, @Min(1) int pageSize,
+                               @NotNull Where<E> predicate) {
+        return loadAfter(keyAttribute, keyType, Order.ASC, lastSeenKey, pageSize, predicate);
+    }
+
+    @Override
+    @NotNull
+    public
+    <K extends Comparable<? super K>>
+    KeysetPage<E, K> loadAfter(@NotNull String keyAttribute, @NotNull Class<K> keyType, @NotNull Order order, K lastSeenKey,
+                               @Min(1) int pageSize, @NotNull Where<E> predicate) {
+        PathBuilder<E> entity = newQueryEntity();
+        ComparablePath<K> key = entity.getComparable(keyAttribute, keyType);
+
+        JPAQuery<E> q = newQuery().from(entity);
+
+        predicate.where(q, entity, alias(getEntityType(), entity));
+        if (lastSeenKey != null) {
+            q.where(order == Order.ASC ? key.gt(lastSeenKey) : key.lt(lastSeenKey));
+        }
+
+        // one more row than requested tells whether the next page exists
+        List<Tuple> rows = q.select(entity, key)
+                .orderBy(new OrderSpecifier<>(order, key))
+                .limit(pageSize + 1L)
+                .fetch();
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Tuple> page = hasNext ? rows.subList(0, pageSize) : rows;
+        List<E> content = new ArrayList<>(page.size());
+        for (Tuple row : page) {
+            content.add(row.get(entity));
+        }
+        K continuationKey = page.isEmpty() ? null : page.get(page.size() - 1).get(key);
+        return new KeysetPage<>(content, continuationKey, hasNext);
+    }
+
+    @Override
+    @NotNull
+    public
+    List<E> loadTopNPerGroup(@NotNull String groupAttribute, @NotNull String orderAttribute, @NotNull Order order,
+                             @Min(1) int n) {
+        return loadTopNPerGroup((q, b, e) -> { }, groupAttribute, orderAttribute, order, n);
+    }
+
+    @Override
+    @NotNull
+    public
+    List<E> loadTopNPerGroup(@NotNull Where<E> predicate, @NotNull String groupAttribute, @NotNull String orderAttribute,
+                             @NotNull Order order, @Min(1) int n) {
+        return TopNPerGroup.load(this, predicate, groupAttribute, orderAttribute, order, n);
+    }
+
     @Override
     public E load(@NotNull Where<E> predicate) {
         PathBuilder<E> entity = newQueryEntity();
@@ -513,6 +1486,125 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
                 .fetchFirst();
     }
 
+    @Override
+    @NotNull
+    public
+    PreparedQuery<E> prepare(@NotNull Where<E> predicate) {
+        PathBuilder<E> entity = newQueryEntity();
+
+        JPAQuery<E> q = newQuery().select(entity).from(entity);
+
+        predicate.where(q, entity, alias(getEntityType(), entity));
+        return new PreparedQuery<>(this, q.getMetadata());
+    }
+
+    @Override
+    @NotNull
+    public
+    PreparedQuery<E> prepare(@NotNull Function<E, Predicate> predicate) {
+        PathBuilder<E> entity = newQueryEntity();
+        JPAQuery<E> q = newQuery()
+                .select(entity)
+                .from(entity)
+                .where(predicate.apply(alias(getEntityType(), entity)));
+        return new PreparedQuery<>(this, q.getMetadata());
+    }
+
+    @Override
+    @NotNull
+    public
+    Stream<E> stream(@NotNull Where<E> predicate) {
+        PathBuilder<E> entity = newQueryEntity();
+        EntityManager em = readEm();
+
+        JPAQuery<E> q = newQuery(em).from(entity);
+
+        predicate.where(q, entity, alias(getEntityType(), entity));
+        return scroll(em, q);
+    }
+
+    @Override
+    @NotNull
+    public
+    Stream<E> stream(@NotNull Function<E, Predicate> predicate) {
+        PathBuilder<E> entity = newQueryEntity();
+        EntityManager em = readEm();
+        return scroll(em, newQuery(em)
+                .from(entity)
+                .where(predicate.apply(alias(getEntityType(), entity))));
+    }
+
+    @Override
+    @NotNull
+    public
+    Stream<E> stream(@NotNull Collection<Predicate> predicates) {
+        PathBuilder<E> entity = newQueryEntity();
+        EntityManager em = readEm();
+        return scroll(em, newQuery(em)
+                .from(entity)
+                .where(predicates.toArray(new Predicate[predicates.size()])));
+    }
+
+    @Override
+    public void forEach(@NotNull Where<E> predicate, @NotNull Consumer<E> action) {
+        try (Stream<E> entities = stream(predicate)) {
+            entities.forEach(action);
+        }
+    }
+
+    @Override
+    public void forEach(@NotNull Function<E, Predicate> predicate, @NotNull Consumer<E> action) {
+        try (Stream<E> entities = stream(predicate)) {
+            entities.forEach(action);
+        }
+    }
+
+    @Override
+    public void forEach(@NotNull Collection<Predicate> predicates, @NotNull Consumer<E> action) {
+        try (Stream<E> entities = stream(predicates)) {
+            entities.forEach(action);
+        }
+    }
+
+    /**
+     * Hibernate scrolls {@link JPAQuery#iterate() iterator} over {@code ScrollableResults} (forward-only cursor).
+     * The entity is detached from the entity manager of the query as soon as the downstream pipeline has consumed it.
+     * The associations loaded together with the entities stay managed, therefore the persistence context
+     * is cleared every {@link #getFetchSize()} rows after the changes of the transaction have been flushed.
+     */
+    private Stream<E> scroll(EntityManager em, JPAQuery<E> q) {
+        int fetchSize = getFetchSize();
+        AtomicLong consumed = new AtomicLong();
+        return scroll(q, entity -> {
+            em.detach(entity);
+            if (consumed.incrementAndGet() % fetchSize == 0) {
+                if (em.isJoinedToTransaction()) {
+                    em.flush();
+                }
+                em.clear();
+            }
+        });
+    }
+
+    private <T> Stream<T> scroll(JPAQuery<T> q, Consumer<T> afterRow) {
+        final CloseableIterator<T> rows = q.setHint(FETCH_SIZE_HINT, getFetchSize())
+                .iterate();
+        Spliterator<T> cursor = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!rows.hasNext()) {
+                    return false;
+                }
+                T row = rows.next();
+                action.accept(row);
+                afterRow.accept(row);
+                return true;
+            }
+        };
+        return StreamSupport.stream(cursor, false)
+                .onClose(rows::close);
+    }
+
     @Override
     public long delete(@NotNull BiConsumer<FilteredClause<?>, E> predicate) {
         PathBuilder<E> entity = newQueryEntity();
@@ -520,7 +1612,9 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
         JPADeleteClause q = newDeleteClause(entity);
 
         predicate.accept(q, alias(getEntityType(), entity));
-        return q.execute();
+        long deleted = q.execute();
+        afterBulkWrite();
+        return deleted;
     }
 
     /**
@@ -535,12 +1629,16 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
      */
     @Override
     public void delete(@NotNull E e) {
-        em().remove(e);
+        EntityManager em = em();
+        // the entities read from the replica are not managed by the primary entity manager
+        em.remove(replicaEm() != null && !em.contains(e) ? em.merge(e) : e);
     }
 
     @Override
     public long deleteAll() {
-        return newDeleteClause(newQueryEntity()).execute();
+        long deleted = newDeleteClause(newQueryEntity()).execute();
+        afterBulkWrite();
+        return deleted;
     }
 
     @Override
@@ -554,8 +1652,10 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @Min(0)
     public
     int updateByNamedQuery(@NotNull String sqlStatement, Object... attributes) {
-        return buildNamedQuery(Integer.class, sqlStatement, attributes)
+        int updated = buildNamedQuery(em(), Integer.class, sqlStatement, attributes)
                 .executeUpdate();
+        afterBulkWrite();
+        return updated;
     }
 
     @Override
@@ -569,8 +1669,10 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @Min(0)
     public
     int updateByNamedQuery(@NotNull String sqlStatement, @NotNull Map<String, ?> attributes) {
-        return buildNamedQuery(Integer.class, sqlStatement, attributes)
+        int updated = buildNamedQuery(em(), Integer.class, sqlStatement, attributes)
                 .executeUpdate();
+        afterBulkWrite();
+        return updated;
     }
 
     @Override
@@ -592,7 +1694,7 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     public
     <T> List<T> selectByNamedQuery(@NotNull String sqlStatement, @NotNull Class<T> resultClass,
                                    @Min(0) int paginationOffset, @Min(1) int pageSize) {
-        return buildNamedQuery(resultClass, sqlStatement, new Object[0])
+        return withReadOnly(buildNamedQuery(readEm(), resultClass, sqlStatement, new Object[0]))
                 .setFirstResult(paginationOffset)
                 .setMaxResults(pageSize)
                 .getResultList();
@@ -609,7 +1711,7 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @NotNull
     public
     <T> List<T> selectByNamedQuery(@NotNull String sqlStatement, @NotNull Class<T> resultClass, Object... attributes) {
-        return buildNamedQuery(resultClass, sqlStatement, attributes)
+        return withReadOnly(buildNamedQuery(readEm(), resultClass, sqlStatement, attributes))
                 .getResultList();
     }
 
@@ -640,7 +1742,7 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     public
     <T> List<T> selectByNamedQuery(@NotNull String sqlStatement, @NotNull Map<String, ?> attributes,
                                    @NotNull Class<T> resultClass) {
-        return buildNamedQuery(resultClass, sqlStatement, attributes)
+        return withReadOnly(buildNamedQuery(readEm(), resultClass, sqlStatement, attributes))
                 .getResultList();
     }
 
@@ -648,11 +1750,12 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     @NotNull
     public
     List<E> findByAttributeAsPattern(@NotNull String attributeName, @NotNull String pattern) {
-        CriteriaBuilder b = em().getCriteriaBuilder();
+        EntityManager em = readEm();
+        CriteriaBuilder b = em.getCriteriaBuilder();
         CriteriaQuery<E> c = b.createQuery(getEntityType());
         Root<E> selection = c.from(getEntityType());
-        return em()
-                .createQuery(c.select(selection).where(b.like(selection.<String>get(attributeName), pattern)))
+        return withReadOnly(withQueryTimeout(em
+                .createQuery(c.select(selection).where(b.like(selection.<String>get(attributeName), pattern)))))
                 .getResultList();
     }
 
@@ -661,7 +1764,8 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
     public
     List<E> findByAttributeAsString(@NotNull String attributeName, @NotNull String attributeValue,
                                     boolean ignoreCase) {
-        CriteriaBuilder b = em().getCriteriaBuilder();
+        EntityManager em = readEm();
+        CriteriaBuilder b = em.getCriteriaBuilder();
         CriteriaQuery<E> c = b.createQuery(getEntityType());
         Root<E> selection = c.from(getEntityType());
 
@@ -692,12 +1796,12 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
                     : b.like(selection.<String>get(attributeName), attributeValue));
         }
 
-        return em().createQuery(c).getResultList();
+        return withReadOnly(withQueryTimeout(em.createQuery(c))).getResultList();
     }
 
-    private <T> TypedQuery<T> buildNamedQuery(@NotNull Class<T> resultClass, @NotNull String sqlStatement,
-                                              @NotNull Map<String, ?> attributes) {
-        TypedQuery<T> query = em().createNamedQuery(sqlStatement, resultClass);
+    private <T> TypedQuery<T> buildNamedQuery(EntityManager em, @NotNull Class<T> resultClass,
+                                              @NotNull String sqlStatement, @NotNull Map<String, ?> attributes) {
+        TypedQuery<T> query = withQueryTimeout(em.createNamedQuery(sqlStatement, resultClass));
         if (attributes != null) {
             attributes.entrySet()
                     .forEach(e -> query.setParameter(e.getKey(), e.getValue()));
@@ -705,9 +1809,9 @@ abstract class BaseDaoImpl<E> implements BaseDao<E> {
         return query;
     }
 
-    private <T> TypedQuery<T> buildNamedQuery(@NotNull Class<T> resultClass, @NotNull String sqlStatement,
-                                              @NotNull Object... attributes) {
-        TypedQuery<T> query = em().createNamedQuery(sqlStatement, resultClass);
+    private <T> TypedQuery<T> buildNamedQuery(EntityManager em, @NotNull Class<T> resultClass,
+                                              @NotNull String sqlStatement, @NotNull Object... attributes) {
+        TypedQuery<T> query = withQueryTimeout(em.createNamedQuery(sqlStatement, resultClass));
         if (attributes != null) {
             for (int i = 0; i < attributes.length; ++i) {
                 query.setParameter(i + 1, attributes[i]);
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.PostgreSQLTemplates;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLTemplates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Native bulk loaders of the databases fed by {@link CsvRows CSV stream}:
+ * H2 {@code CSVREAD}, PostgreSQL {@code COPY FROM STDIN} and MySQL {@code LOAD DATA LOCAL INFILE}.
+ * The JDBC drivers of PostgreSQL and MySQL are called reflectively, therefore they are not compile-time dependencies.
+ */
+final class BulkImport {
+    private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+
+    /**
+     * Statements of MySQL Connector/J 8 and 5.
+     */
+    private static final String[] MYSQL_STATEMENTS = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement"};
+
+    private BulkImport() {
+        throw new IllegalStateException("no instantiable constructor");
+    }
+
+    /**
+     * @return true if the database has native bulk loader and the JDBC driver of the connection supports it
+     */
+    static boolean isSupported(SQLTemplates templates, Connection connection) throws SQLException {
+        if (templates instanceof H2Templates) {
+            return true;
+        } else if (templates instanceof PostgreSQLTemplates) {
+            Class<?> pgConnection = findDriverClass(connection, PG_CONNECTION);
+            return pgConnection != null && connection.isWrapperFor(pgConnection);
+        } else if (templates instanceof MySQLTemplates) {
+            return findDriverClass(connection, MYSQL_STATEMENTS) != null;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @param timeout applies query timeout to the statement
+     * @return number of imported rows
+     */
+    static <T> long importAll(Connection connection, SQLTemplates templates, RelationalPath<?> table,
+                              List<? extends Path<?>> columns, Iterator<T> rows, Function<T, Object[]> values,
+                              StatementTimeout timeout) throws SQLException {
+        String tableName = tableName(templates, table);
+        String columnNames = columns.stream()
+                .map(column -> templates.quoteIdentifier(table.getMetadata(column).getName()))
+                .collect(joining(", "));
+        if (templates instanceof H2Templates) {
+            return h2(connection, tableName, columnNames, new CsvRows<>(rows, values, ""), timeout);
+        } else if (templates instanceof PostgreSQLTemplates) {
+            return postgreSql(connection, tableName, columnNames, new CsvRows<>(rows, values, ""), timeout);
+        } else if (templates instanceof MySQLTemplates) {
+            return mySql(connection, tableName, columnNames, new CsvRows<>(rows, values, "NULL"), timeout);
+        } else {
+            throw new IllegalArgumentException("native bulk import is not supported by " + templates);
+        }
+    }
+
+    /**
+     * CSVREAD reads a file, therefore the stream is written to temporary file on the disk of this JVM.
+     * The database must run in this JVM or on this host.
+     */
+    private static long h2(Connection connection, String table, String columns, CsvRows<?> csv,
+                           StatementTimeout timeout) throws SQLException {
+        java.nio.file.Path file = null;
+        try {
+            file = Files.createTempFile("import", ".csv");
+            Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING);
+            // CSVREAD is evaluated while the statement is prepared, therefore the arguments are literals
+            String sql = "insert into " + table + " (" + columns + ") select * from csvread("
+                    + literal(file.toAbsolutePath().toString()) + ", " + literal(columns.replace(" ", ""))
+                    + ", 'charset=UTF-8')";
+            try (Statement statement = connection.createStatement()) {
+                timeout.apply(statement);
+                return statement.executeUpdate(sql);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * The COPY API does not apply the query timeout of JDBC, therefore the timeout limits the statements
+     * of the session on the server and the previous limit is restored after the import. If the import fails
+     * in a transaction, the rollback restores the previous limit.
+     */
+    private static long postgreSql(Connection connection, String table, String columns, CsvRows<?> csv,
+                                   StatementTimeout timeout) throws SQLException {
+        String sql = "copy " + table + " (" + columns + ") from stdin with (format csv)";
+        try (Statement statement = connection.createStatement()) {
+            timeout.apply(statement);
+            int seconds = statement.getQueryTimeout();
+            if (seconds == 0) {
+                return copyIn(connection, sql, csv);
+            }
+            String previous;
+            try (ResultSet limit = statement.executeQuery("show statement_timeout")) {
+                limit.next();
+                previous = limit.getString(1);
+            }
+            statement.execute("set statement_timeout = " + literal(seconds + "s"));
+            boolean copied = false;
+            try {
+                long count = copyIn(connection, sql, csv);
+                copied = true;
+                return count;
+            } finally {
+                if (copied || connection.getAutoCommit()) {
+                    statement.execute("set statement_timeout = " + literal(previous));
+                }
+            }
+        }
+    }
+
+    private static long copyIn(Connection connection, String sql, CsvRows<?> csv) throws SQLException {
+        try {
+            Class<?> pgConnection = findDriverClass(connection, PG_CONNECTION);
+            if (pgConnection == null) {
+                throw new ClassNotFoundException(PG_CONNECTION);
+            }
+            Object copyManager = pgConnection.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnection));
+            return (Long) copyManager.getClass()
+                    .getMethod("copyIn", String.class, InputStream.class)
+                    .invoke(copyManager, sql, csv);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new SQLException("PostgreSQL driver does not support COPY API", e);
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * The driver must allow local files, e.g. by {@code allowLoadLocalInfile=true} of Connector/J 8.
+     */
+    private static long mySql(Connection connection, String table, String columns, CsvRows<?> csv,
+                              StatementTimeout timeout) throws SQLException {
+        String sql = "load data local infile 'stream' into table " + table + " character set utf8"
+                + " fields terminated by ',' optionally enclosed by '\"' escaped by ''"
+                + " lines terminated by '\\n' (" + columns + ")";
+        try (Statement statement = connection.createStatement()) {
+            timeout.apply(statement);
+            Class<?> mySqlStatement = findDriverClass(connection, MYSQL_STATEMENTS);
+            if (mySqlStatement == null) {
+                throw new ClassNotFoundException(String.join(", ", MYSQL_STATEMENTS));
+            }
+            mySqlStatement.getMethod("setLocalInfileInputStream", InputStream.class)
+                    .invoke(statement.unwrap(mySqlStatement), csv);
+            return statement.executeUpdate(sql);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new SQLException("MySQL driver does not support LOAD DATA LOCAL INFILE from stream", e);
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * @return the first class loadable by the class loader of the driver, or null
+     */
+    private static Class<?> findDriverClass(Connection connection, String... classNames) {
+        for (String className : classNames) {
+            try {
+                return Class.forName(className, true, connection.getClass().getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                // try the next driver version
+            }
+        }
+        return null;
+    }
+
+    private static String literal(String value) {
+        return '\'' + value.replace("'", "''") + '\'';
+    }
+
+    private static String tableName(SQLTemplates templates, RelationalPath<?> table) {
+        String name = templates.quoteIdentifier(table.getTableName());
+        return table.getSchemaName() == null || table.getSchemaName().isEmpty()
+                ? name : templates.quoteIdentifier(table.getSchemaName()) + '.' + name;
+    }
+
+    private static SQLException unwrap(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else {
+            return new SQLException(cause.getLocalizedMessage(), cause);
+        }
+    }
+
+    private static void deleteQuietly(java.nio.file.Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface StatementTimeout {
+        void apply(Statement statement) throws SQLException;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of bulk update or delete executed in chunks of rows, see
+ * {@link IGDAO#deleteInChunks(Where, Chunks)} and {@link IGDAO#updateInChunks(Where, java.util.function.Consumer, Chunks)}.
+ * Instances are immutable.
+ */
+public final class Chunks {
+    private final int size;
+    private final Duration pause;
+    private final LongConsumer progress;
+    private final Transaction transaction;
+
+    private Chunks(int size, Duration pause, LongConsumer progress, Transaction transaction) {
+        this.size = size;
+        this.pause = pause;
+        this.progress = progress;
+        this.transaction = transaction;
+    }
+
+    /**
+     * Runs every chunk in its own transaction of the entity manager without pause between chunks.
+     *
+     * @param size maximal number of rows modified by one statement
+     */
+    @NotNull
+    public static Chunks of(@Min(1) int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        return new Chunks(size, Duration.ZERO, processed -> { }, null);
+    }
+
+    /**
+     * Pause between two chunks so that the other transactions can acquire the locks.
+     */
+    @NotNull
+    public Chunks pause(@NotNull Duration pauseBetweenChunks) {
+        return new Chunks(size, requireNonNull(pauseBetweenChunks, "pauseBetweenChunks"), progress, transaction);
+    }
+
+    /**
+     * @param progressListener receives total number of rows modified so far after every chunk
+     */
+    @NotNull
+    public Chunks onProgress(@NotNull LongConsumer progressListener) {
+        return new Chunks(size, pause, requireNonNull(progressListener, "progressListener"), transaction);
+    }
+
+    /**
+     * Runs every chunk in the transaction of {@code chunkTransaction}, e.g. new JTA transaction.
+     * By default the chunk runs in resource-local transaction of the entity manager outside of active transaction.
+     */
+    @NotNull
+    public Chunks inTransaction(@NotNull Transaction chunkTransaction) {
+        return new Chunks(size, pause, progress, requireNonNull(chunkTransaction, "chunkTransaction"));
+    }
+
+    @Min(1)
+    public int getSize() {
+        return size;
+    }
+
+    @NotNull
+    public Duration getPause() {
+        return pause;
+    }
+
+    @NotNull
+    public LongConsumer getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return custom transaction, or null if the chunk runs in resource-local transaction
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Transaction which commits one chunk.
+     */
+    @FunctionalInterface
+    public interface Transaction {
+        /**
+         * @param chunk modifies the rows and returns the number of modified rows
+         * @return number of modified rows
+         */
+        long execute(@NotNull LongSupplier chunk);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streams the rows as UTF-8 encoded CSV lines. Every row is encoded only when the reader of the stream reaches it,
+ * therefore the rows are never held in memory together. Non-null values are enclosed in double quotes.
+ *
+ * @param <T> row type
+ */
+final class CsvRows<T> extends InputStream {
+    private static final byte[] EMPTY = {};
+
+    private final Iterator<T> rows;
+    private final Function<T, Object[]> values;
+    private final String nullValue;
+    private byte[] line = EMPTY;
+    private int position;
+    private long count;
+
+    /**
+     * @param nullValue unquoted representation of SQL {@code NULL}
+     */
+    CsvRows(Iterator<T> rows, Function<T, Object[]> values, String nullValue) {
+        this.rows = rows;
+        this.values = values;
+        this.nullValue = nullValue;
+    }
+
+    /**
+     * @return number of rows encoded so far
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() {
+        return nextLine() ? line[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextLine()) {
+            return -1;
+        }
+        int length = Math.min(len, line.length - position);
+        System.arraycopy(line, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    private boolean nextLine() {
+        while (position == line.length) {
+            if (!rows.hasNext()) {
+                return false;
+            }
+            line = encode(values.apply(rows.next()));
+            position = 0;
+            count++;
+        }
+        return true;
+    }
+
+    private byte[] encode(Object[] row) {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < row.length; i++) {
+            if (i != 0) {
+                csv.append(',');
+            }
+            Object value = row[i];
+            if (value == null) {
+                csv.append(nullValue);
+            } else {
+                csv.append('"')
+                        .append(format(value).replace("\"", "\"\""))
+                        .append('"');
+            }
+        }
+        return csv.append('\n')
+                .toString()
+                .getBytes(UTF_8);
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        } else if (value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time)) {
+            return new Timestamp(((Date) value).getTime()).toString();
+        } else {
+            return value.toString();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import javax.inject.Qualifier;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
@@ -34,4 +35,38 @@ import static java.lang.annotation.ElementType.PARAMETER;
 @Target({FIELD, METHOD, PARAMETER})
 public @interface DAO {
     @Nonbinding Class<? extends Annotation> value() default Default.class;
+
+    /**
+     * Maximal number of entities in read-through cache shared by all DAOs of the same entity and datasource.
+     * Zero (default) disables the cache. The cache is meant for immutable reference data, see {@link EntityCache}.
+     * All injection points of the same entity and datasource must specify the same size and time to live.
+     */
+    @Nonbinding int cacheSize() default 0;
+
+    /**
+     * Time to live of cached entity in {@link #cacheTtlUnit()}.
+     */
+    @Nonbinding long cacheTtl() default 60;
+
+    @Nonbinding TimeUnit cacheTtlUnit() default TimeUnit.SECONDS;
+
+    /**
+     * Loads all entities read-only, see {@link BaseDao#readOnly(java.util.function.Supplier)}.
+     */
+    @Nonbinding boolean readOnly() default false;
+
+    /**
+     * Number of entities loaded by one query in {@link IGDAO#loadReferences(java.util.Collection)}.
+     * Zero (default) uses the maximal {@code IN} list of the database.
+     */
+    @Nonbinding int fetchBatchSize() default 0;
+
+    /**
+     * Datasource qualifier of the entity manager of read replica. The reads, except locked reads, go to the replica
+     * according to {@link #replicaReads()}. {@code Annotation.class} (default) reads from {@link #value()}.
+     * Asynchronous DAOs create new entity manager of the replica's factory for every task.
+     */
+    @Nonbinding Class<? extends Annotation> replica() default Annotation.class;
+
+    @Nonbinding ReplicaReads replicaReads() default ReplicaReads.OUTSIDE_TRANSACTION;
 }
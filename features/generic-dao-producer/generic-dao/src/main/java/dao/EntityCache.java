@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of entities by primary key with LRU eviction and expiration after write.
+ * The cache holds detached copies which do not belong to any persistence context and every hit is copied again,
+ * therefore the cache is meant for reference data without associations; other entities are not cached.
+ * The entries are invalidated when any persistence context of the same session factory flushes update or delete
+ * of the entity, and when any DAO of the entity runs bulk statement.
+ * The statistics are approximate while the cache is used concurrently.
+ *
+ * @param <PK> primary key type
+ * @param <E> entity type
+ */
+public final class EntityCache<PK, E> {
+    private final LruMap<PK, E> entries;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EntityCache(@Min(1) int maximumSize, @Min(1) long ttl, @NotNull TimeUnit unit) {
+        if (maximumSize < 1 || ttl < 1) {
+            throw new IllegalArgumentException("maximumSize and ttl must be positive");
+        }
+        entries = new LruMap<>(maximumSize, evictions);
+        this.maximumSize = maximumSize;
+        ttlNanos = unit.toNanos(ttl);
+    }
+
+    @Min(1)
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Min(1)
+    public long getTtl(@NotNull TimeUnit unit) {
+        return unit.convert(ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return cached entity, or null if not cached or expired
+     */
+    public E get(PK id) {
+        synchronized (entries) {
+            Cached<E> cached = entries.get(id);
+            if (cached != null && System.nanoTime() - cached.writtenAt > ttlNanos) {
+                entries.remove(id);
+                evictions.incrementAndGet();
+                cached = null;
+            }
+            (cached == null ? misses : hits).incrementAndGet();
+            return cached == null ? null : cached.entity;
+        }
+    }
+
+    public void put(@NotNull PK id, @NotNull E entity) {
+        synchronized (entries) {
+            entries.put(id, new Cached<>(entity, System.nanoTime()));
+        }
+    }
+
+    public void invalidate(PK id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Min(0)
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Min(0)
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Min(0)
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries removed because the cache was full or the entry expired
+     */
+    @Min(0)
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{size=" + size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + '}';
+    }
+
+    private static final class Cached<E> {
+        private final E entity;
+        private final long writtenAt;
+
+        private Cached(E entity, long writtenAt) {
+            this.entity = entity;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    private static final class LruMap<PK, E> extends LinkedHashMap<PK, Cached<E>> {
+        private static final long serialVersionUID = 1L;
+        private static final float LOAD_FACTOR = 0.75f;
+
+        private final int maximumSize;
+        private final AtomicLong evictions;
+
+        private LruMap(int maximumSize, AtomicLong evictions) {
+            super(16, LOAD_FACTOR, true);
+            this.maximumSize = maximumSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PK, Cached<E>> eldest) {
+            boolean full = size() > maximumSize;
+            if (full) {
+                evictions.incrementAndGet();
+            }
+            return full;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.types.dsl.PathBuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Collections.emptySet;
+import static java.util.Objects.hash;
+
+/**
+ * Compiles the filter of {@link WheresAdapter} once per shape and caches the {@link FilterPlan plans}.
+ * The shape is the class of adapter, the keys of criteria, the keys with null values and the builders.
+ * At most {@value #MAX_SHAPES} shapes are cached, other shapes are compiled on every call.
+ */
+final class FilterCompiler {
+    private static final int MAX_SHAPES = 1024;
+    private static final ConcurrentMap<Shape, FilterPlan> PLANS = new ConcurrentHashMap<>();
+
+    private FilterCompiler() {
+        throw new IllegalStateException("no instantiable constructor");
+    }
+
+    static FilterPlan plan(WheresAdapter adapter, Map<String, Object> criteria, Map<Alias, PathBuilder<?>> builders) {
+        Set<String> nullKeys = nullKeys(criteria);
+        // the lookup key refers to the maps of caller, the cached key is a copy
+        FilterPlan plan = PLANS.get(new Shape(adapter.getClass(), criteria.keySet(), nullKeys, builders));
+        if (plan == null) {
+            plan = FilterPlan.compile(adapter, criteria.keySet(), nullKeys, builders);
+            if (PLANS.size() < MAX_SHAPES) {
+                Shape shape = new Shape(adapter.getClass(), new HashSet<>(criteria.keySet()), nullKeys,
+                        new HashMap<>(builders));
+                FilterPlan cached = PLANS.putIfAbsent(shape, plan);
+                plan = cached == null ? plan : cached;
+            }
+        }
+        return plan;
+    }
+
+    private static Set<String> nullKeys(Map<String, Object> criteria) {
+        Set<String> nullKeys = emptySet();
+        for (Map.Entry<String, Object> criterion : criteria.entrySet()) {
+            if (criterion.getValue() == null) {
+                if (nullKeys.isEmpty()) {
+                    nullKeys = new HashSet<>();
+                }
+                nullKeys.add(criterion.getKey());
+            }
+        }
+        return nullKeys;
+    }
+
+    private static final class Shape {
+        private final Class<?> adapterType;
+        private final Set<String> keys;
+        private final Set<String> nullKeys;
+        private final Map<Alias, PathBuilder<?>> builders;
+
+        private Shape(Class<?> adapterType, Set<String> keys, Set<String> nullKeys, Map<Alias, PathBuilder<?>> builders) {
+            this.adapterType = adapterType;
+            this.keys = keys;
+            this.nullKeys = nullKeys;
+            this.builders = builders;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Shape shape = (Shape) o;
+            return adapterType == shape.adapterType && Objects.equals(keys, shape.keys)
+                    && Objects.equals(nullKeys, shape.nullKeys) && Objects.equals(builders, shape.builders);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(adapterType, keys, nullKeys, builders);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.DslExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Filter of {@link WheresAdapter} compiled for one shape, i.e. the keys of criteria and the aliases of builders.
+ * The filterable keys are resolved to {@link Entry entries} once and the predicate, if the adapter
+ * {@link WheresAdapter#compile(Map, Map) compiles} it, refers to the criteria values by parameters.
+ * Criteria without value have no parameter and the compiled predicate ignores them.
+ * Applying the plan only binds the values. The plan is immutable and shared by all adapters of the same class.
+ */
+final class FilterPlan {
+    private final List<String> keys;
+    private final List<Entry> entries;
+    private final List<Param<Object>> params;
+    private final Predicate predicate;
+    private final List<Class<?>> aliasTypes;
+
+    private FilterPlan(List<String> keys, List<Entry> entries, List<Param<Object>> params, Predicate predicate,
+                       List<Class<?>> aliasTypes) {
+        this.keys = keys;
+        this.entries = entries;
+        this.params = params;
+        this.predicate = predicate;
+        this.aliasTypes = aliasTypes;
+    }
+
+    /**
+     * @param nullKeys keys of criteria without value, these are not parameters of the compiled predicate
+     */
+    static FilterPlan compile(WheresAdapter adapter, Iterable<String> criteriaKeys, Set<String> nullKeys,
+                              Map<Alias, PathBuilder<?>> builders) {
+        List<String> keys = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        List<Param<Object>> params = new ArrayList<>();
+        Map<Entry, Param<Object>> paramsOfEntries = new LinkedHashMap<>();
+        for (String key : criteriaKeys) {
+            if (adapter.isKeyFilterable(key)) {
+                Alias alias = new Alias(adapter.filterableAlias(key));
+                if (builders.containsKey(alias)) {
+                    Entry entry = new Entry(alias, adapter.filterableProperty(key));
+                    Param<Object> param = nullKeys.contains(key) ? null : new Param<>(Object.class, "filter" + params.size());
+                    keys.add(key);
+                    entries.add(entry);
+                    params.add(param);
+                    if (param != null) {
+                        paramsOfEntries.put(entry, param);
+                    }
+                }
+            }
+        }
+        List<Class<?>> aliasTypes = builders.values()
+                .stream()
+                .map(DslExpression::getType)
+                .collect(toList());
+        Predicate predicate = adapter.compile(unmodifiableMap(paramsOfEntries), builders);
+        return new FilterPlan(unmodifiableList(keys), unmodifiableList(entries), unmodifiableList(params), predicate,
+                unmodifiableList(aliasTypes));
+    }
+
+    /**
+     * Removes the filtered values from the criteria and restricts the query.
+     */
+    @SuppressWarnings("unchecked")
+    void apply(WheresAdapter adapter, JPAQuery query, Map<Alias, PathBuilder<?>> builders, Map<String, Object> criteria) {
+        if (predicate != null) {
+            query.where(predicate);
+            for (int i = 0; i < keys.size(); i++) {
+                Object value = criteria.remove(keys.get(i));
+                if (params.get(i) != null) {
+                    query.set(params.get(i), value);
+                }
+            }
+        } else {
+            Map<Entry, Object> values = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                values.put(entries.get(i), criteria.remove(keys.get(i)));
+            }
+            adapter.where(query, builders, values);
+        }
+    }
+
+    List<Class<?>> getAliasTypes() {
+        return aliasTypes;
+    }
+}
@@ -18,19 +18,75 @@
  */
 package dao;
 
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparablePath;
+import com.querydsl.core.types.dsl.DateTimeExpression;
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.SimplePath;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPAQueryBase;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import com.querydsl.sql.SQLTemplates;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.EntityTransaction;
 import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TransactionRequiredException;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
+import static com.querydsl.core.alias.Alias.alias;
 import static java.util.Objects.requireNonNull;
 
 abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
         extends BaseDaoImpl<E> implements IGDAO<E, PK> {
 
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+    private static final String TILE_LOW_COLUMN = "tile_low_";
+    private static final String TILE_HIGH_COLUMN = "tile_high_";
+
     private final Class<PK> primaryKeyType;
 
     @SuppressWarnings("unchecked")
@@ -50,6 +106,22 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
         return primaryKeyType;
     }
 
+    /**
+     * Override to enable read-through cache of entities in {@link #load(Serializable)}.
+     * The cache requires Hibernate, it keeps detached copies of entities without associations
+     * and it is invalidated whenever the entity is updated or deleted, see {@link EntityCache}.
+     *
+     * @return shared cache, or null (default) if entities are not cached
+     */
+    protected EntityCache<PK, E> cache() {
+        return null;
+    }
+
+    @Override
+    public EntityCache<PK, E> getEntityCache() {
+        return cache();
+    }
+
     /**
      * Behaves the same as {@link javax.persistence.EntityManager#getReference EntityManager.getReference}.
      */
@@ -60,6 +132,59 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
         return em().getReference(getEntityType(), id);
     }
 
+    @Override
+    @NotNull
+    public
+    List<E> loadReferences(@NotNull Collection<PK> ids) {
+        EntityManager em = em();
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        List<E> references = new ArrayList<>(ids.size());
+        Set<PK> uninitialized = new LinkedHashSet<>();
+        for (PK id : ids) {
+            E reference = em.getReference(getEntityType(), id);
+            references.add(reference);
+            if (!util.isLoaded(reference)) {
+                uninitialized.add(id);
+            }
+        }
+
+        List<PK> pending = new ArrayList<>(uninitialized);
+        int batchSize = getFetchBatchSize();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<PK> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            if (!initializeTogether(em, batch)) {
+                // the persistence context initializes the references of loaded entities
+                PathBuilder<E> entity = newQueryEntity();
+                newQuery(em).select(entity)
+                        .from(entity)
+                        .where(entity.getSimple(getIdAttributeName(), primaryKeyType).in(batch))
+                        .fetch();
+            }
+        }
+        return references;
+    }
+
+    private boolean initializeTogether(EntityManager em, List<PK> batch) {
+        if (!HibernateSupport.isAvailable()) {
+            return false;
+        }
+        try {
+            HibernateSupport.initializeTogether(em, getEntityType(), batch);
+            return true;
+        } catch (PersistenceException e) {
+            // not Hibernate persistence provider
+            return false;
+        }
+    }
+
+    /**
+     * Number of entities loaded by one query in {@link #loadReferences(Collection)}.
+     */
+    @Min(1)
+    protected int getFetchBatchSize() {
+        return getInListChunkSize();
+    }
+
     /**
      * @see javax.persistence.PersistenceUnitUtil#getIdentifier(Object) ID of given entity
      */
@@ -86,9 +211,512 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
     @NotNull
     public
     E update(@NotNull PK id, @NotNull Function<E, E> merge) {
-        E old = load(id);
+        E old = find(em(), id);
         E neW = merge.apply(old);
-        return em().merge(neW);
+        return merge(neW);
+    }
+
+    @Override
+    @Min(0)
+    public long updateFields(@NotNull PK id, @NotNull Consumer<UpdateSpec<E>> fields) {
+        return updateFields(Collections.singletonList(id), fields);
+    }
+
+    private long updateFields(List<PK> ids, Consumer<UpdateSpec<E>> fields) {
+        return updateFields(ids, null, fields);
+    }
+
+    private long updateFields(List<PK> ids, Where<E> predicate, Consumer<UpdateSpec<E>> fields) {
+        PathBuilder<E> entity = newQueryEntity();
+        JPAUpdateClause q = newUpdateClause(entity);
+        UpdateSpec<E> spec = new UpdateSpec<>(q, entity);
+        fields.accept(spec);
+        if (spec.isEmpty()) {
+            return 0;
+        }
+
+        SimplePath<PK> id = entity.getSimple(getIdAttributeName(), primaryKeyType);
+        q.where(ids.size() == 1 ? id.eq(ids.get(0)) : id.in(ids));
+        if (predicate != null) {
+            q.where(restriction(predicate, entity));
+        }
+
+        SingularAttribute<? super E, ?> version = getVersionAttribute();
+        if (version != null) {
+            nextVersion(q, entity, version.getName(), version.getJavaType());
+            if (spec.getExpectedVersion() != null) {
+                q.where(entity.get(version.getName()).eq(spec.getExpectedVersion()));
+            }
+        } else if (spec.getExpectedVersion() != null) {
+            throw new IllegalStateException(getEntityType().getSimpleName() + " does not have version attribute");
+        }
+
+        long updated = q.execute();
+        invalidateCaches(ids);
+        return updated;
+    }
+
+    /**
+     * Increments numeric version or sets time version to current time, in the Java type of version attribute.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void nextVersion(JPAUpdateClause q, PathBuilder<?> entity, String version, Class<?> versionType) {
+        Class type = MethodType.methodType(versionType).wrap().returnType();
+        if (Number.class.isAssignableFrom(type)) {
+            increment(q, entity.getNumber(version, type));
+        } else {
+            now(q, entity.getDateTime(version, type), type);
+        }
+    }
+
+    private static <N extends Number & Comparable<?>> void increment(JPAUpdateClause q, NumberPath<N> version) {
+        q.set(version, version.add(1));
+    }
+
+    private static <T extends Comparable<?>> void now(JPAUpdateClause q, DateTimePath<T> version, Class<T> type) {
+        q.set(version, DateTimeExpression.currentTimestamp(type));
+    }
+
+    @Override
+    @Min(0)
+    public long deleteInChunks(@NotNull Where<E> predicate, @NotNull Chunks chunks) {
+        return inChunks(predicate, chunks, ids -> {
+            PathBuilder<E> entity = newQueryEntity();
+            long deleted = newDeleteClause(entity)
+                    .where(entity.getSimple(getIdAttributeName(), primaryKeyType).in(ids),
+                            restriction(predicate, entity))
+                    .execute();
+            invalidateCaches(ids);
+            return deleted;
+        });
+    }
+
+    @Override
+    @Min(0)
+    public long updateInChunks(@NotNull Where<E> predicate, @NotNull Consumer<UpdateSpec<E>> fields,
+                               @NotNull Chunks chunks) {
+        return inChunks(predicate, chunks, ids -> updateFields(ids, predicate, fields));
+    }
+
+    @Override
+    @Min(0)
+    public long scanPartitioned(@Min(1) int partitions, @NotNull Where<E> predicate,
+                                @NotNull Consumer<List<E>> chunkProcessor) {
+        return scanPartitioned(partitions, predicate, chunkProcessor, Chunks.of(getFetchSize()));
+    }
+
+    @Override
+    @Min(0)
+    public long scanPartitioned(@Min(1) int partitions, @NotNull Where<E> predicate,
+                                @NotNull Consumer<List<E>> chunkProcessor, @NotNull Chunks chunks) {
+        return scanPartitioned(partitions, predicate, chunkProcessor, chunks, getScanExecutor());
+    }
+
+    @Override
+    @Min(0)
+    public long scanPartitioned(@Min(1) int partitions, @NotNull Where<E> predicate,
+                                @NotNull Consumer<List<E>> chunkProcessor, @NotNull Chunks chunks,
+                                @NotNull Executor executor) {
+        requireNonNull(executor, "executor");
+        if (partitions < 1) {
+            throw new IllegalArgumentException("number of partitions must be positive");
+        }
+        List<PK> bounds = partitionBounds(partitions, predicate);
+        if (bounds.isEmpty()) {
+            return 0;
+        }
+
+        // the entity manager of DAO is bound to the calling thread
+        EntityManagerFactory emf = em().getEntityManagerFactory();
+        ComparablePath<PK> id = newQueryEntity().getComparable(getIdAttributeName(), primaryKeyType);
+        int partitionCount = Math.max(1, bounds.size() - 1);
+        AtomicLong total = new AtomicLong();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        try {
+            List<Future<?>> scans = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                BooleanExpression range = (i == 0 ? id.goe(bounds.get(0)) : id.gt(bounds.get(i)))
+                        .and(id.loe(bounds.get(Math.min(i + 1, bounds.size() - 1))));
+                Where<E> partition = (q, entity, alias) -> {
+                    predicate.where(q, entity, alias);
+                    q.where(range);
+                };
+                scans.add(CompletableFuture.runAsync(withOperationState(
+                        () -> scanPartition(emf, partition, id, chunkProcessor, chunks, total, cancelled)), executor));
+            }
+            for (Future<?> scan : scans) {
+                awaitPartition(scan, cancelled);
+            }
+            return total.get();
+        } finally {
+            cancelled.set(true);
+        }
+    }
+
+    /**
+     * Executor of {@link #scanPartitioned(int, Where, Consumer, Chunks) partitioned scans}.
+     * The DAO has no executor of its own, override in order to supply the managed executor of the application.
+     *
+     * @throws IllegalStateException if the DAO has no executor
+     */
+    @NotNull
+    protected Executor getScanExecutor() {
+        throw new IllegalStateException("no executor of partitioned scans in " + getClass().getName()
+                + ", override getScanExecutor() or pass the executor to scanPartitioned()");
+    }
+
+    private void scanPartition(EntityManagerFactory emf, Where<E> partition, ComparablePath<PK> id,
+                               Consumer<List<E>> chunkProcessor, Chunks chunks, AtomicLong total, AtomicBoolean cancelled) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            PersistenceUnitUtil util = emf.getPersistenceUnitUtil();
+            PK lastSeenId = null;
+            while (!cancelled.get()) {
+                JPAQuery<E> q = newProjectionQuery(em, partition, entity -> entity);
+                if (lastSeenId != null) {
+                    q.where(id.gt(lastSeenId));
+                }
+                List<E> chunk = q.orderBy(id.asc())
+                        .limit(chunks.getSize())
+                        .fetch();
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                lastSeenId = primaryKeyType.cast(util.getIdentifier(chunk.get(chunk.size() - 1)));
+                em.clear();
+
+                Chunks.Transaction custom = chunks.getTransaction();
+                if (custom == null) {
+                    chunkProcessor.accept(chunk);
+                } else {
+                    custom.execute(() -> {
+                        chunkProcessor.accept(chunk);
+                        return chunk.size();
+                    });
+                }
+                chunks.getProgress().accept(total.addAndGet(chunk.size()));
+
+                if (chunk.size() < chunks.getSize() || !pause(chunks.getPause())) {
+                    break;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            cancelled.set(true);
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void awaitPartition(Future<?> scan, AtomicBoolean cancelled) {
+        try {
+            scan.get();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("interrupted partitioned scan", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new PersistenceException(cause);
+            }
+        }
+    }
+
+    /**
+     * @return ascending bounds of partitions starting with minimal and ending with maximal primary key,
+     *         or empty list if no entity matches
+     */
+    private List<PK> partitionBounds(int partitions, Where<E> predicate) {
+        ComparablePath<PK> id = newQueryEntity().getComparable(getIdAttributeName(), primaryKeyType);
+        List<PK> bounds = new ArrayList<>(partitions + 1);
+        if (Number.class.isAssignableFrom(primaryKeyType)) {
+            Tuple minMax = newProjectionQuery(em(), predicate, entity -> Projections.tuple(
+                    Expressions.comparableOperation(primaryKeyType, Ops.AggOps.MIN_AGG, id),
+                    Expressions.comparableOperation(primaryKeyType, Ops.AggOps.MAX_AGG, id)))
+                    .fetchOne();
+            PK min = minMax == null ? null : minMax.get(0, primaryKeyType);
+            PK max = minMax == null ? null : minMax.get(1, primaryKeyType);
+            if (min == null || max == null) {
+                return bounds;
+            }
+            BigDecimal low = new BigDecimal(min.toString());
+            BigDecimal width = new BigDecimal(max.toString()).subtract(low);
+            bounds.add(min);
+            for (int i = 1; i < partitions; i++) {
+                BigDecimal bound = width.multiply(BigDecimal.valueOf(i))
+                        .divide(BigDecimal.valueOf(partitions), 0, RoundingMode.FLOOR)
+                        .add(low);
+                addBound(bounds, toPrimaryKey(bound));
+            }
+            addBound(bounds, max);
+        } else {
+            List<PK> tileBounds = tileBounds(partitions, predicate, id);
+            if (tileBounds != null) {
+                return tileBounds;
+            }
+            // one pass over the ordered primary keys
+            long count = newProjectionQuery(em(), predicate, entity -> id).fetchCount();
+            if (count == 0) {
+                return bounds;
+            }
+            try (CloseableIterator<PK> ids = newProjectionQuery(em(), predicate, entity -> id)
+                    .orderBy(id.asc())
+                    .iterate()) {
+                PK last = null;
+                for (long i = 0, partition = 0; ids.hasNext(); i++) {
+                    last = ids.next();
+                    if (partition < partitions && i == count * partition / partitions) {
+                        addBound(bounds, last);
+                        partition++;
+                    }
+                }
+                addBound(bounds, last);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Splits the primary keys into groups with equal number of entities by {@code NTILE()} in one query.
+     *
+     * @return ascending bounds of partitions, or null if the database, the mapping or the query does not support
+     *         the window function
+     */
+    private List<PK> tileBounds(int partitions, Where<E> predicate, ComparablePath<PK> id) {
+        if (!isWindowCountSupported()) {
+            return null;
+        }
+        EntityManager em = em();
+        String table = HibernateSupport.tableName(em, getEntityType());
+        String idColumn = HibernateSupport.idColumn(em, getEntityType());
+        if (table == null || idColumn == null) {
+            return null;
+        }
+        Integer timeout = getQueryTimeout();
+        List<Object[]> tiles = HibernateSupport.loadTranslatedIds(em, getEntityType(),
+                newProjectionQuery(em, predicate, entity -> id).getMetadata(),
+                restriction -> NativeSql.tileBoundsQuery(table, idColumn, TILE_LOW_COLUMN, TILE_HIGH_COLUMN, restriction,
+                        partitions),
+                timeout == null ? null : (int) TimeUnit.MILLISECONDS.toSeconds(timeout),
+                TILE_LOW_COLUMN, TILE_HIGH_COLUMN);
+        if (tiles == null) {
+            return null;
+        }
+        List<PK> bounds = new ArrayList<>(partitions + 1);
+        for (Object[] tile : tiles) {
+            addBound(bounds, primaryKeyType.cast(tile[0]));
+        }
+        if (!tiles.isEmpty()) {
+            addBound(bounds, primaryKeyType.cast(tiles.get(tiles.size() - 1)[1]));
+        }
+        return bounds;
+    }
+
+    private static <PK extends Comparable<PK>> void addBound(List<PK> bounds, PK bound) {
+        if (bound != null && (bounds.isEmpty() || bounds.get(bounds.size() - 1).compareTo(bound) < 0)) {
+            bounds.add(bound);
+        }
+    }
+
+    @Override
+    @NotNull
+    public
+    List<E> claimBatch(@NotNull Where<E> predicate, @Min(1) int batchSize, @NotNull Duration lockTimeout) {
+        if (!em().isJoinedToTransaction()) {
+            throw new TransactionRequiredException("claimed rows are locked until the transaction ends");
+        }
+        ComparablePath<PK> id = newQueryEntity().getComparable(getIdAttributeName(), primaryKeyType);
+        JPAQuery<PK> ids = newProjectionQuery(em(), predicate,
+                entity -> entity.getComparable(getIdAttributeName(), primaryKeyType));
+        List<E> claimed = claimSkippingLocked(ids, batchSize, lockTimeout);
+        if (claimed != null) {
+            return claimed;
+        }
+        // the database cannot skip the locked rows, concurrent claims wait for each other at most the lock timeout
+        return newProjectionQuery(em(), predicate, entity -> entity)
+                .orderBy(id.asc())
+                .limit(batchSize)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT_HINT, (int) Math.min(lockTimeout.toMillis(), Integer.MAX_VALUE))
+                .fetch();
+    }
+
+    /**
+     * Locks and loads the batch by single native statement skipping the locked rows. The rows locked by other
+     * transactions are not waited for, therefore the lock timeout bounds the whole statement.
+     *
+     * @param ids query selecting the identifiers of entities
+     * @return claimed entities, or null if the database does not skip locked rows
+     */
+    private List<E> claimSkippingLocked(JPAQuery<PK> ids, int batchSize, Duration lockTimeout) {
+        if (!HibernateSupport.isAvailable()) {
+            return null;
+        }
+        SQLTemplates templates;
+        try {
+            templates = doWithConnection(BaseDaoImpl::findTemplates);
+        } catch (SQLException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+        if (!NativeSql.isSkipLockedSupported(templates)) {
+            return null;
+        }
+        long timeout = Math.max(lockTimeout.toMillis(), 1);
+        Integer deadline = getQueryTimeout();
+        if (deadline != null) {
+            timeout = Math.min(timeout, deadline);
+        }
+        int timeoutSeconds = (int) Math.min(TimeUnit.MILLISECONDS.toSeconds(timeout - 1) + 1, Integer.MAX_VALUE);
+
+        EntityManager em = em();
+        return HibernateSupport.lockSkippingLocked(em, templates, getEntityType(), ids.getMetadata(), batchSize,
+                timeoutSeconds);
+    }
+
+    /**
+     * Converts the value of primary key column returned by native query.
+     */
+    private PK toPrimaryKey(Object id) {
+        if (primaryKeyType.isInstance(id) || !(id instanceof Number)) {
+            return primaryKeyType.cast(id);
+        }
+        Number number = (Number) id;
+        Class<?> type = primaryKeyType;
+        final Object converted;
+        if (type == Long.class) {
+            converted = number.longValue();
+        } else if (type == Integer.class) {
+            converted = number.intValue();
+        } else if (type == Short.class) {
+            converted = number.shortValue();
+        } else if (type == BigInteger.class) {
+            converted = new BigDecimal(number.toString()).toBigInteger();
+        } else if (type == BigDecimal.class) {
+            converted = new BigDecimal(number.toString());
+        } else {
+            converted = id;
+        }
+        return primaryKeyType.cast(converted);
+    }
+
+    /**
+     * Walks through the primary keys of matching entities in ascending order and applies the statement
+     * to every chunk of keys. The keys are selected before the chunk transaction starts, therefore
+     * the locks are held only while the statement runs.
+     */
+    private long inChunks(Where<E> predicate, Chunks chunks, ToLongFunction<List<PK>> statement) {
+        requireChunkTransaction(chunks);
+        String idAttribute = getIdAttributeName();
+        ComparablePath<PK> id = newQueryEntity().getComparable(idAttribute, primaryKeyType);
+        long total = 0;
+        PK lastSeenId = null;
+        while (true) {
+            // keys not replicated yet must not be skipped
+            JPAQuery<PK> q = newProjectionQuery(em(), predicate, entity -> entity.getComparable(idAttribute, primaryKeyType));
+            if (lastSeenId != null) {
+                q.where(id.gt(lastSeenId));
+            }
+            List<PK> ids = q.orderBy(id.asc())
+                    .limit(chunks.getSize())
+                    .fetch();
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            total += inChunkTransaction(chunks, () -> statement.applyAsLong(ids));
+            chunks.getProgress().accept(total);
+            lastSeenId = ids.get(ids.size() - 1);
+
+            if (ids.size() < chunks.getSize() || !pause(chunks.getPause())) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The rows may change between selecting their keys and modifying them, therefore the statement
+     * modifying the chunk applies the predicate again.
+     *
+     * @return the restriction of predicate on the entity path of statement
+     */
+    @SuppressWarnings("unchecked")
+    private com.querydsl.core.types.Predicate restriction(Where<E> predicate, PathBuilder<E> entity) {
+        JPAQuery<E> q = new JPAQuery<E>().from(entity);
+        predicate.where(q, entity, alias(getEntityType(), entity));
+        if (q.getMetadata().getJoins().size() == 1) {
+            return q.getMetadata().getWhere();
+        }
+        // bulk statements do not join, the predicate with joins restricts the keys by subquery
+        String idAttribute = getIdAttributeName();
+        PathBuilder<E> selected = newQueryEntity(entity.getMetadata().getName() + "Selected");
+        JPQLQuery<PK> keys = JPAExpressions.select(selected.getSimple(idAttribute, primaryKeyType))
+                .from(selected);
+        predicate.where((JPAQueryBase<E, ?>) (JPAQueryBase<?, ?>) keys, selected, alias(getEntityType(), selected));
+        return entity.getSimple(idAttribute, primaryKeyType).in(keys);
+    }
+
+    private long inChunkTransaction(Chunks chunks, LongSupplier chunk) {
+        Chunks.Transaction custom = chunks.getTransaction();
+        if (custom != null) {
+            return custom.execute(chunk);
+        }
+        EntityTransaction transaction = resourceLocalTransaction(em());
+        transaction.begin();
+        try {
+            long modified = chunk.getAsLong();
+            transaction.commit();
+            return modified;
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the chunks would join the active transaction of caller
+     *                               and therefore could not commit separately
+     */
+    private void requireChunkTransaction(Chunks chunks) {
+        if (chunks.getTransaction() != null) {
+            return;
+        }
+        EntityManager em = em();
+        if (em.isJoinedToTransaction() || resourceLocalTransaction(em).isActive()) {
+            throw new IllegalStateException("chunks cannot commit separately within active transaction, "
+                    + "run them outside of the transaction or within custom transaction of Chunks.inTransaction()");
+        }
+    }
+
+    private static EntityTransaction resourceLocalTransaction(EntityManager em) {
+        try {
+            return em.getTransaction();
+        } catch (IllegalStateException e) {
+            throw new TransactionRequiredException("JTA entity manager runs the chunks only within custom transaction "
+                    + "of Chunks.inTransaction()");
+        }
+    }
+
+    /**
+     * @return {@code false} if interrupted
+     */
+    private static boolean pause(Duration pause) {
+        if (pause.isZero() || pause.isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     /**
@@ -107,12 +735,138 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
      */
     @Override
     public E load(@NotNull PK id) {
-        return em().find(getEntityType(), id);
+        EntityCache<PK, E> cache = HibernateSupport.isAvailable() ? cache() : null;
+        if (cache == null) {
+            EntityManager em = readEm();
+            return markReadOnly(em, find(em, id));
+        }
+        EntityManager em = em();
+        E cached = cache.get(id);
+        if (cached != null) {
+            // every caller gets own copy which is not bound to any persistence context
+            return HibernateSupport.detachedCopy(em, getEntityType(), cached);
+        }
+        // the writes flushed on the primary invalidate the cache, the replica might still read the state before a write
+        HibernateSupport.invalidateOnWrite(em, getEntityType(), cache);
+        E managed = findManaged(em, id);
+        E e = managed == null ? find(em, id) : managed;
+        E copy = e == null ? null : HibernateSupport.detachedCopy(em, getEntityType(), e);
+        if (copy == null) {
+            // entity with associations is not cached
+            return markReadOnly(em, e);
+        }
+        if (managed == null) {
+            // the primary persistence context stays as it was before the call
+            em.detach(e);
+        }
+        cache.put(id, copy);
+        return HibernateSupport.detachedCopy(em, getEntityType(), copy);
+    }
+
+    /**
+     * Loads the entity into persistence context of {@code em} bypassing the {@link #cache() cache}.
+     */
+    private E find(EntityManager em, PK id) {
+        if (getQueryTimeout() == null) {
+            return em.find(getEntityType(), id);
+        }
+        E managed = findManaged(em, id);
+        return managed == null ? findWithQueryTimeout(em, id, null) : managed;
     }
 
     @Override
     public E load(@NotNull PK id, @NotNull LockModeType lock) {
-        return em().find(getEntityType(), id, lock);
+        return getQueryTimeout() == null ? em().find(getEntityType(), id, lock) : findWithQueryTimeout(em(), id, lock);
+    }
+
+    /**
+     * {@link EntityManager#find(Class, Object, Map) Find} does not apply the query timeout hint in Hibernate,
+     * therefore the entity is selected by a query within {@link #withDeadline(Duration, java.util.function.Supplier) deadline}.
+     */
+    private E findWithQueryTimeout(EntityManager em, PK id, LockModeType lock) {
+        PathBuilder<E> entity = newQueryEntity();
+        JPAQuery<E> q = newQuery(em).select(entity)
+                .from(entity)
+                .where(entity.getSimple(getIdAttributeName(), primaryKeyType).eq(id));
+        if (lock != null) {
+            q.setLockMode(lock);
+        }
+        return q.fetchOne();
+    }
+
+    @Override
+    @NotNull
+    public
+    LoadResult<E, PK> loadAllById(@NotNull Collection<PK> ids) {
+        return loadAllById(readEm(), ids);
+    }
+
+    private LoadResult<E, PK> loadAllById(EntityManager em, Collection<PK> ids) {
+        Set<PK> requested = new LinkedHashSet<>(ids);
+        Map<PK, E> loaded = new HashMap<>();
+        List<PK> unmanaged = new ArrayList<>(requested.size());
+        for (PK id : requested) {
+            E managed = findManaged(em, id);
+            if (managed == null) {
+                unmanaged.add(id);
+            } else {
+                loaded.put(id, managed);
+            }
+        }
+
+        if (!unmanaged.isEmpty()) {
+            PathBuilder<E> entity = newQueryEntity();
+            SimplePath<PK> id = entity.getSimple(getIdAttributeName(), primaryKeyType);
+            int chunkSize = getInListChunkSize();
+            for (int from = 0; from < unmanaged.size(); from += chunkSize) {
+                List<PK> chunk = unmanaged.subList(from, Math.min(from + chunkSize, unmanaged.size()));
+                for (E e : newQuery(em).select(entity).from(entity).where(id.in(chunk)).fetch()) {
+                    loaded.put(getIdentifier(e), e);
+                }
+            }
+        }
+
+        Map<PK, E> found = new LinkedHashMap<>();
+        Set<PK> missing = new LinkedHashSet<>();
+        for (PK id : requested) {
+            E e = loaded.get(id);
+            if (e == null) {
+                missing.add(id);
+            } else {
+                found.put(id, e);
+            }
+        }
+        return new LoadResult<>(found, missing);
+    }
+
+    private E findManaged(PK id) {
+        return findManaged(em(), id);
+    }
+
+    private E findManaged(EntityManager em, PK id) {
+        if (HibernateSupport.isAvailable()) {
+            try {
+                return HibernateSupport.managed(em, getEntityType(), id);
+            } catch (PersistenceException e) {
+                // not Hibernate persistence provider
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    @NotNull
+    public
+    KeysetPage<E, PK> loadAfter(PK lastSeenId, @Min(1) int pageSize) {
+        return loadAfter(getIdAttributeName(), primaryKeyType, lastSeenId, pageSize);
+    }
+
+    @Override
+    @NotNull
+    public
+    KeysetPage<E, PK> loadAfter(PK lastSeenId, @Min(1) int pageSize, @NotNull Where<E> predicate) {
+        return loadAfter(getIdAttributeName(), primaryKeyType, lastSeenId, pageSize, predicate);
     }
 
     /**
@@ -135,16 +889,20 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
         if (!hasId(entityObject) || (id = getIdentifier(entityObject)) == null) {
             throw new IllegalArgumentException("does not have id");
         }
-        final E e = load(id);
+        final E e = find(em(), id);
         if (e == null) {
-            throw new EntityNotFoundException(getEntityType().getSimpleName()
-                    + " record with "
-                    + id
-                    + " does not exist in database");
+            throw notFound(id);
         }
         return e;
     }
 
+    private EntityNotFoundException notFound(PK id) {
+        return new EntityNotFoundException(getEntityType().getSimpleName()
+                + " record with "
+                + id
+                + " does not exist in database");
+    }
+
     /**
      * Loads (detached) entity object into persistence context (unless already been loaded).
      *
@@ -246,7 +1004,8 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
     public
     E refresh(E e, LockModeType lockMode, TimeUnit timeoutUnits, long timeout) {
         e = reloadIfDetached(e);
-        em().refresh(e, lockMode);
+        int lockTimeout = (int) Math.min(timeoutUnits.toMillis(timeout), Integer.MAX_VALUE);
+        em().refresh(e, lockMode, Collections.singletonMap(LOCK_TIMEOUT_HINT, lockTimeout));
         return e;
     }
 
@@ -255,6 +1014,51 @@ abstract class GenericDAO<E, PK extends Serializable & Comparable<PK>>
      */
     @Override
     public void delete(@NotNull PK id) {
-        em().remove(load(id));
+        if (isBulkDeletable() && findManaged(id) == null) {
+            if (deleteByIds(Collections.singleton(id)) == 0) {
+                throw notFound(id);
+            }
+        } else {
+            E e = find(em(), id);
+            if (e == null) {
+                throw notFound(id);
+            }
+            delete(e);
+        }
+    }
+
+    @Override
+    @Min(0)
+    public long deleteByIds(@NotNull Collection<PK> ids) {
+        if (!isBulkDeletable()) {
+            // the entities are removed from the persistence context of primary
+            List<E> found = loadAllById(em(), ids).getFound();
+            found.forEach(this::delete);
+            return found.size();
+        }
+
+        long deleted = 0;
+        List<PK> unmanaged = new ArrayList<>(ids.size());
+        for (PK id : new LinkedHashSet<>(ids)) {
+            E managed = findManaged(id);
+            if (managed == null) {
+                unmanaged.add(id);
+            } else {
+                delete(managed);
+                deleted++;
+            }
+        }
+
+        PathBuilder<E> entity = newQueryEntity();
+        SimplePath<PK> idPath = entity.getSimple(getIdAttributeName(), primaryKeyType);
+        int chunkSize = getInListChunkSize();
+        for (int from = 0; from < unmanaged.size(); from += chunkSize) {
+            List<PK> chunk = unmanaged.subList(from, Math.min(from + chunkSize, unmanaged.size()));
+            deleted += newDeleteClause(entity)
+                    .where(idPath.in(chunk))
+                    .execute();
+            invalidateCaches(chunk);
+        }
+        return deleted;
     }
 }
@@ -0,0 +1,615 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.sql.OracleTemplates;
+import com.querydsl.sql.SQLTemplates;
+import org.hibernate.FlushMode;
+import org.hibernate.JDBCException;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.LongType;
+import org.hibernate.type.Type;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Extensions specific to Hibernate which are not available in JPA API.
+ * The Hibernate classes are linked only if the methods are called,
+ * see {@link #isAvailable()}.
+ */
+final class HibernateSupport {
+    private static final boolean AVAILABLE = isPresent("org.hibernate.Session");
+    private static final Map<SessionFactory, CacheInvalidation> INVALIDATIONS = new WeakHashMap<>();
+    private static final Map<SessionFactory, BatchInitialization> BATCH_INITIALIZATIONS = new WeakHashMap<>();
+
+    private HibernateSupport() {
+        throw new IllegalStateException("no instantiable constructor");
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Runs the work on the connection of the session. The connection may be released after the work
+     * if the session releases the connections after every statement.
+     *
+     * @throws SQLException thrown by the work
+     */
+    static <T> T doWork(EntityManager em, BaseDaoImpl.JdbcWork<T> work) throws SQLException {
+        try {
+            return em.unwrap(Session.class)
+                    .doReturningWork(work::execute);
+        } catch (JDBCException e) {
+            throw e.getSQLException();
+        }
+    }
+
+    /**
+     * @return table name mapped by the entity, or null if the entity is not mapped to single table
+     */
+    static String tableName(EntityManager em, Class<?> entityType) {
+        Object persister = em.unwrap(Session.class)
+                .getSessionFactory()
+                .getClassMetadata(entityType);
+        return persister instanceof AbstractEntityPersister ? ((AbstractEntityPersister) persister).getTableName() : null;
+    }
+
+    /**
+     * @return column of single-column primary key, or null if the primary key is composite
+     */
+    static String idColumn(EntityManager em, Class<?> entityType) {
+        Object persister = em.unwrap(Session.class)
+                .getSessionFactory()
+                .getClassMetadata(entityType);
+        if (persister instanceof AbstractEntityPersister) {
+            String[] columns = ((AbstractEntityPersister) persister).getIdentifierColumnNames();
+            return columns.length == 1 ? columns[0] : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return column of the single-column attribute, or null if the attribute is mapped to several columns
+     */
+    static String columnName(EntityManager em, Class<?> entityType, String attribute) {
+        Object persister = em.unwrap(Session.class)
+                .getSessionFactory()
+                .getClassMetadata(entityType);
+        if (persister instanceof AbstractEntityPersister) {
+            String[] columns = ((AbstractEntityPersister) persister).getPropertyColumnNames(attribute);
+            return columns.length == 1 ? columns[0] : null;
+        }
+        return null;
+    }
+
+    /**
+     * Columns written by native upsert statement, identifier columns first.
+     *
+     * @return columns of the entity, or null if the entity is versioned, inherited, has composite or formula
+     *         properties or the properties are not insertable and updatable
+     */
+    static UpsertColumns upsertColumns(EntityManager em, Class<?> entityType) {
+        Object metadata = em.unwrap(Session.class)
+                .getSessionFactory()
+                .getClassMetadata(entityType);
+        if (!(metadata instanceof AbstractEntityPersister)) {
+            return null;
+        }
+        AbstractEntityPersister persister = (AbstractEntityPersister) metadata;
+        if (persister.isVersioned() || persister.isInherited() || persister.getEntityMetamodel().hasSubclasses()) {
+            return null;
+        }
+        List<Integer> properties = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        Type[] types = persister.getPropertyTypes();
+        for (int property = 0; property < types.length; property++) {
+            if (types[property].isCollectionType()) {
+                continue;
+            }
+            String[] propertyColumns = persister.getPropertyColumnNames(property);
+            if (types[property].isComponentType() || propertyColumns.length != 1 || propertyColumns[0] == null
+                    || !persister.getPropertyInsertability()[property] || !persister.getPropertyUpdateability()[property]) {
+                return null;
+            }
+            properties.add(property);
+            columns.add(propertyColumns[0]);
+        }
+        return new UpsertColumns(persister, properties, columns);
+    }
+
+    /**
+     * Translates the query selecting the identifiers of entity to SQL, and locks and loads the entities
+     * by the native query of {@link NativeSql#skipLockedQuery(SQLTemplates, String, String, String, int)}.
+     *
+     * @param timeout query timeout in seconds
+     * @return locked entities, or null if the query cannot skip locked rows
+     */
+    static <E> List<E> lockSkippingLocked(EntityManager em, SQLTemplates templates, Class<E> entityType,
+                                          QueryMetadata ids, int limit, int timeout) {
+        String table = tableName(em, entityType);
+        String idColumn = idColumn(em, entityType);
+        if (table == null || idColumn == null) {
+            return null;
+        }
+        SQLQuery query = translatedQuery(em, ids,
+                restriction -> NativeSql.skipLockedQuery(templates, table, idColumn, restriction, limit));
+        if (query == null) {
+            return null;
+        }
+        query.addEntity(entityType)
+                .setTimeout(timeout);
+
+        if (!(templates instanceof OracleTemplates)) {
+            return list(query, entityType);
+        }
+        // Oracle locks the rows as they are fetched
+        ScrollableResults rows = query.setFetchSize(limit)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            List<E> locked = new ArrayList<>(limit);
+            while (locked.size() < limit && rows.next()) {
+                locked.add(entityType.cast(rows.get(0)));
+            }
+            return locked;
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * Translates the JPQL query to SQL and creates native query of the SQL built around the translated one.
+     *
+     * @param sql builds the native SQL keeping the parameters of translated SQL at their positions,
+     *            or returns null if the native SQL cannot be built
+     * @return native query with bound parameters, or null
+     */
+    static SQLQuery translatedQuery(EntityManager em, QueryMetadata metadata, UnaryOperator<String> sql) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(metadata, false, null);
+        String hql = serializer.toString();
+        Map<Object, String> constants = serializer.getConstantToLabel();
+        if (constants.keySet().stream().anyMatch(Collection.class::isInstance)) {
+            // the parameter lists are expanded by Hibernate before the translation
+            return null;
+        }
+        SessionFactoryImplementor factory = em.unwrap(SessionImplementor.class).getFactory();
+        QueryTranslator translator = factory.getSettings().getQueryTranslatorFactory()
+                .createQueryTranslator(hql, hql, Collections.emptyMap(), factory, null);
+        translator.compile(Collections.emptyMap(), false);
+        String nativeSql = sql.apply(translator.getSQLString());
+        if (nativeSql == null) {
+            return null;
+        }
+
+        SQLQuery query = em.unwrap(Session.class).createSQLQuery(nativeSql);
+        ParameterTranslations parameters = translator.getParameterTranslations();
+        for (Map.Entry<Object, String> constant : constants.entrySet()) {
+            Type type = parameters.getNamedParameterExpectedType(constant.getValue());
+            for (int location : parameters.getNamedParameterSqlLocations(constant.getValue())) {
+                if (type == null) {
+                    query.setParameter(location, constant.getKey());
+                } else {
+                    query.setParameter(location, constant.getKey(), type);
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Loads the entities by the native query built around the SQL translated from the JPQL query,
+     * see {@link #translatedQuery(EntityManager, QueryMetadata, UnaryOperator)}.
+     *
+     * @param timeout query timeout in seconds, or null
+     * @return entities, or null if the native query cannot be built
+     */
+    static <E> List<E> loadTranslated(EntityManager em, Class<E> entityType, QueryMetadata metadata,
+                                      UnaryOperator<String> sql, boolean readOnly, Integer timeout) {
+        SQLQuery query = translatedQuery(em, metadata, sql);
+        if (query == null) {
+            return null;
+        }
+        query.addEntity(entityType);
+        return list(withOptions(query, readOnly, timeout), entityType);
+    }
+
+    /**
+     * Loads the entities together with numeric columns by the native query built around the SQL translated
+     * from the JPQL query, see {@link #translatedQuery(EntityManager, QueryMetadata, UnaryOperator)}.
+     *
+     * @param timeout query timeout in seconds, or null
+     * @return rows of entity followed by {@link Long} values of the columns, or null if the native query cannot be built
+     */
+    static List<Object[]> loadTranslatedWithCounts(EntityManager em, Class<?> entityType, QueryMetadata metadata,
+                                                   UnaryOperator<String> sql, boolean readOnly, Integer timeout,
+                                                   String... countColumns) {
+        SQLQuery query = translatedQuery(em, metadata, sql);
+        if (query == null) {
+            return null;
+        }
+        query.addEntity(entityType);
+        for (String countColumn : countColumns) {
+            query.addScalar(countColumn, LongType.INSTANCE);
+        }
+        List<?> rows = withOptions(query, readOnly, timeout).list();
+        List<Object[]> counted = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            counted.add((Object[]) row);
+        }
+        return counted;
+    }
+
+    /**
+     * Loads the primary keys by the native query built around the SQL translated from the JPQL query,
+     * see {@link #translatedQuery(EntityManager, QueryMetadata, UnaryOperator)}.
+     *
+     * @param timeout query timeout in seconds, or null
+     * @param idColumns columns of primary keys of the entity selected by the native query
+     * @return rows of primary keys of the columns, or null if the native query cannot be built
+     */
+    static List<Object[]> loadTranslatedIds(EntityManager em, Class<?> entityType, QueryMetadata metadata,
+                                            UnaryOperator<String> sql, Integer timeout, String... idColumns) {
+        SQLQuery query = translatedQuery(em, metadata, sql);
+        if (query == null) {
+            return null;
+        }
+        Type idType = em.unwrap(Session.class)
+                .getSessionFactory()
+                .getClassMetadata(entityType)
+                .getIdentifierType();
+        for (String idColumn : idColumns) {
+            query.addScalar(idColumn, idType);
+        }
+        List<?> rows = withOptions(query, true, timeout).list();
+        List<Object[]> ids = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            ids.add(row instanceof Object[] ? (Object[]) row : new Object[] {row});
+        }
+        return ids;
+    }
+
+    private static SQLQuery withOptions(SQLQuery query, boolean readOnly, Integer timeout) {
+        query.setReadOnly(readOnly);
+        if (timeout != null) {
+            query.setTimeout(timeout);
+        }
+        return query;
+    }
+
+    private static <E> List<E> list(SQLQuery query, Class<E> entityType) {
+        List<?> rows = query.list();
+        List<E> entities = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            entities.add(entityType.cast(row));
+        }
+        return entities;
+    }
+
+    /**
+     * Looks up the entity in the persistence context without hitting the database.
+     *
+     * @return managed entity, or null if the entity is not managed
+     */
+    static <E> E managed(EntityManager em, Class<E> entityType, Serializable id) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getEntityPersister(entityType.getName());
+        Object entity = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+        return entityType.isInstance(entity) ? entityType.cast(entity) : null;
+    }
+
+    /**
+     * Entities loaded into the session while default read-only mode is on do not keep snapshots
+     * and are not dirty-checked.
+     *
+     * @return previous default read-only mode
+     */
+    static boolean defaultReadOnly(EntityManager em, boolean readOnly) {
+        Session session = em.unwrap(Session.class);
+        boolean previous = session.isDefaultReadOnly();
+        session.setDefaultReadOnly(readOnly);
+        return previous;
+    }
+
+    /**
+     * Discards the snapshot of managed entity and excludes the entity from dirty checking.
+     */
+    static void readOnly(EntityManager em, Object entity) {
+        em.unwrap(Session.class).setReadOnly(entity, true);
+    }
+
+    /**
+     * Copies the state of entity to new detached instance. The entity is copyable if it does not have
+     * associations, therefore the copy does not refer to any persistence context.
+     *
+     * @return detached copy, or null if the entity has associations
+     */
+    static <E> E detachedCopy(EntityManager em, Class<E> entityType, E entity) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getEntityPersister(null, entity);
+        Type[] types = persister.getPropertyTypes();
+        for (Type type : types) {
+            if (type.isAssociationType()) {
+                return null;
+            }
+        }
+        Object[] values = persister.getPropertyValues(entity);
+        for (int property = 0; property < values.length; property++) {
+            values[property] = types[property].deepCopy(values[property], session.getFactory());
+        }
+        Object copy = persister.instantiate(persister.getIdentifier(entity, session), session);
+        persister.setPropertyValues(copy, values);
+        return entityType.cast(copy);
+    }
+
+    /**
+     * Registers the cache to be invalidated whenever the session factory of {@code em} updates or deletes
+     * the entity, regardless of DAO or entity manager which has flushed the change.
+     */
+    static void invalidateOnWrite(EntityManager em, Class<?> entityType, EntityCache<?, ?> cache) {
+        SessionFactory sessionFactory = em.unwrap(Session.class).getSessionFactory();
+        CacheInvalidation invalidation;
+        synchronized (INVALIDATIONS) {
+            invalidation = INVALIDATIONS.get(sessionFactory);
+            if (invalidation == null) {
+                invalidation = new CacheInvalidation();
+                EventListenerRegistry listeners = ((SessionFactoryImplementor) sessionFactory)
+                        .getServiceRegistry()
+                        .getService(EventListenerRegistry.class);
+                listeners.appendListeners(EventType.POST_UPDATE, invalidation);
+                listeners.appendListeners(EventType.POST_DELETE, invalidation);
+                // the entity loaded by concurrent transaction before the commit is evicted again
+                listeners.appendListeners(EventType.POST_COMMIT_UPDATE, invalidation);
+                listeners.appendListeners(EventType.POST_COMMIT_DELETE, invalidation);
+                INVALIDATIONS.put(sessionFactory, invalidation);
+            }
+        }
+        invalidation.register(entityType, cache);
+    }
+
+    /**
+     * Bulk and native statements bypass the persistence context and the listeners,
+     * therefore the caller invalidates the caches.
+     *
+     * @param ids modified entities, or null if any entity may have been modified
+     */
+    static void invalidate(EntityManager em, Class<?> entityType, Collection<?> ids) {
+        CacheInvalidation invalidation;
+        synchronized (INVALIDATIONS) {
+            invalidation = INVALIDATIONS.get(em.unwrap(Session.class).getSessionFactory());
+        }
+        if (invalidation != null) {
+            invalidation.invalidate(entityType, ids);
+        }
+    }
+
+    /**
+     * Registers the uninitialized references to be initialized together: the first reference initialized
+     * in the session of {@code em} loads the entities of all references by one {@code IN} query.
+     */
+    static void initializeTogether(EntityManager em, Class<?> entityType, Collection<? extends Serializable> ids) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor sessionFactory = session.getFactory();
+        BatchInitialization initialization;
+        synchronized (BATCH_INITIALIZATIONS) {
+            initialization = BATCH_INITIALIZATIONS.get(sessionFactory);
+            if (initialization == null) {
+                initialization = new BatchInitialization();
+                sessionFactory.getServiceRegistry()
+                        .getService(EventListenerRegistry.class)
+                        .prependListeners(EventType.LOAD, initialization);
+                BATCH_INITIALIZATIONS.put(sessionFactory, initialization);
+            }
+        }
+        EntityPersister persister = sessionFactory.getEntityPersister(entityType.getName());
+        List<EntityKey> keys = new ArrayList<>(ids.size());
+        for (Serializable id : ids) {
+            keys.add(session.generateEntityKey(id, persister));
+        }
+        initialization.register(session, new Batch(persister, new ArrayList<>(ids), keys));
+    }
+
+    private static final class Batch {
+        private final String query;
+        private final List<Serializable> ids;
+        private final List<EntityKey> keys;
+
+        private Batch(EntityPersister persister, List<Serializable> ids, List<EntityKey> keys) {
+            query = "select e from " + persister.getEntityName() + " e where e." + persister.getIdentifierPropertyName()
+                    + " in (:ids)";
+            this.ids = ids;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Proxy is initialized by {@link LoadEventListener#IMMEDIATE_LOAD immediate load} of its entity which finds
+     * the entity in the persistence context if the batch query has loaded it before.
+     */
+    private static final class BatchInitialization implements LoadEventListener {
+        private static final long serialVersionUID = 1L;
+
+        // the batches do not reference the session, therefore they are collected together with the session
+        private final transient Map<SessionImplementor, Map<EntityKey, Batch>> batches = new WeakHashMap<>();
+
+        void register(SessionImplementor session, Batch batch) {
+            synchronized (batches) {
+                Map<EntityKey, Batch> pending = batches.computeIfAbsent(session, s -> new HashMap<>());
+                batch.keys.forEach(key -> pending.put(key, batch));
+            }
+        }
+
+        private Batch remove(SessionImplementor session, EntityKey key) {
+            synchronized (batches) {
+                Map<EntityKey, Batch> pending = batches.get(session);
+                Batch batch = pending == null ? null : pending.get(key);
+                if (batch != null) {
+                    batch.keys.forEach(pending::remove);
+                }
+                return batch;
+            }
+        }
+
+        @Override
+        public void onLoad(LoadEvent event, LoadType loadType) {
+            if (loadType != IMMEDIATE_LOAD) {
+                return;
+            }
+            EventSource session = event.getSession();
+            EntityPersister persister = session.getFactory().getEntityPersister(event.getEntityClassName());
+            Batch batch = remove(session, session.generateEntityKey(event.getEntityId(), persister));
+            if (batch != null) {
+                session.createQuery(batch.query)
+                        .setParameterList("ids", batch.ids)
+                        .setFlushMode(FlushMode.MANUAL)
+                        .list();
+            }
+        }
+    }
+
+    private static final class CacheInvalidation implements PostUpdateEventListener, PostDeleteEventListener {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ConcurrentMap<Class<?>, Set<EntityCache<?, ?>>> caches = new ConcurrentHashMap<>();
+
+        void register(Class<?> entityType, EntityCache<?, ?> cache) {
+            caches.computeIfAbsent(entityType, type -> ConcurrentHashMap.newKeySet())
+                    .add(cache);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void invalidate(Class<?> entityType, Collection<?> ids) {
+            for (Class<?> type = entityType; type != null; type = type.getSuperclass()) {
+                for (EntityCache cache : caches.getOrDefault(type, Collections.emptySet())) {
+                    if (ids == null) {
+                        cache.invalidateAll();
+                    } else {
+                        ids.forEach(cache::invalidate);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            invalidate(event.getPersister().getMappedClass(), Collections.singleton(event.getId()));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            invalidate(event.getPersister().getMappedClass(), Collections.singleton(event.getId()));
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return true;
+        }
+    }
+
+    static final class UpsertColumns {
+        private final AbstractEntityPersister persister;
+        private final List<Integer> properties;
+        private final List<String> columns;
+
+        private UpsertColumns(AbstractEntityPersister persister, List<Integer> properties, List<String> columns) {
+            this.persister = persister;
+            this.properties = properties;
+            this.columns = columns;
+        }
+
+        String getTable() {
+            return persister.getTableName();
+        }
+
+        List<String> getIdColumns() {
+            return asList(persister.getIdentifierColumnNames());
+        }
+
+        /**
+         * @return non-identifier columns
+         */
+        List<String> getColumns() {
+            return columns;
+        }
+
+        /**
+         * Binds the identifier and the properties of entity in the order of {@link #getIdColumns()}
+         * and {@link #getColumns()}.
+         */
+        void bind(EntityManager em, PreparedStatement statement, Object entity) throws SQLException {
+            SessionImplementor session = em.unwrap(SessionImplementor.class);
+            Type idType = persister.getIdentifierType();
+            idType.nullSafeSet(statement, persister.getIdentifier(entity, session), 1, session);
+            int index = 1 + idType.getColumnSpan(session.getFactory());
+            Object[] values = persister.getPropertyValues(entity);
+            Type[] types = persister.getPropertyTypes();
+            for (int property : properties) {
+                types[property].nullSafeSet(statement, values[property], index++, session);
+            }
+        }
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, HibernateSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -19,9 +19,15 @@
 package dao;
 
 import javax.persistence.LockModeType;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public interface IGDAO<E, PK extends Serializable & Comparable<PK>>
@@ -33,6 +39,17 @@ public interface IGDAO<E, PK extends Serializable & Comparable<PK>>
     @NotNull
     E fetchLazily(@NotNull PK id);
 
+    /**
+     * References in the order of {@code ids}, see {@link #fetchLazily(Serializable)}. Unlike the references of
+     * {@link #fetchLazily(Serializable)}, the references not yet initialized are grouped in
+     * {@link GenericDAO#getFetchBatchSize() batches}, and the first reference of the batch touched in the persistence
+     * context initializes the whole batch with one {@code IN} query. Without Hibernate the batches are loaded
+     * eagerly by this method. The references to missing entities stay uninitialized and throw
+     * {@link javax.persistence.EntityNotFoundException} when touched.
+     */
+    @NotNull
+    List<E> loadReferences(@NotNull Collection<PK> ids);
+
     /**
      * @see javax.persistence.PersistenceUnitUtil#getIdentifier(Object) ID of given entity
      */
@@ -47,6 +64,110 @@ public interface IGDAO<E, PK extends Serializable & Comparable<PK>>
     @NotNull
     E update(@NotNull PK id, @NotNull Function<E, E> merge);
 
+    /**
+     * Updates the attributes of the entity by single bulk statement without loading the entity.
+     * Numeric {@link javax.persistence.Version version} is incremented and time version is set to current time.
+     * The entity, if already managed in the persistence context, is not refreshed.
+     *
+     * @param fields sets the changed attributes and optionally the {@link UpdateSpec#expectVersion expected version}
+     * @return number of updated entities, zero if the entity does not exist or the version does not match
+     * @throws IllegalStateException if the version is expected but the entity does not have version attribute
+     */
+    @Min(0)
+    long updateFields(@NotNull PK id, @NotNull Consumer<UpdateSpec<E>> fields);
+
+    /**
+     * Deletes the entities matching the predicate in chunks of rows ordered by primary key.
+     * Every chunk commits separately so that the locks are released early, see {@link Chunks}.
+     * Unless {@link Chunks#inTransaction custom transaction} is used, the method must not be called within active
+     * transaction, which would hold the locks of all chunks until it commits. The statement modifying the chunk applies
+     * the predicate again, therefore the rows which stopped matching the predicate after the chunk was selected
+     * are not modified.
+     * The entities are deleted by bulk statements, therefore managed entities are not removed from
+     * the persistence context.
+     *
+     * @param predicate selects the entities, must not specify its own order
+     * @return number of deleted entities
+     * @throws IllegalStateException if called within active transaction without custom transaction
+     * @throws javax.persistence.TransactionRequiredException if JTA entity manager is used without custom transaction
+     */
+    @Min(0)
+    long deleteInChunks(@NotNull Where<E> predicate, @NotNull Chunks chunks);
+
+    /**
+     * Updates the entities matching the predicate in chunks of rows ordered by primary key,
+     * see {@link #deleteInChunks(Where, Chunks)} and {@link #updateFields(Serializable, Consumer)}.
+     *
+     * @return number of updated entities
+     */
+    @Min(0)
+    long updateInChunks(@NotNull Where<E> predicate, @NotNull Consumer<UpdateSpec<E>> fields, @NotNull Chunks chunks);
+
+    /**
+     * Processes the entities matching the predicate in parallel, see
+     * {@link #scanPartitioned(int, Where, Consumer, Chunks)}. The chunk size is the JDBC fetch size of the DAO.
+     */
+    @Min(0)
+    long scanPartitioned(@Min(1) int partitions, @NotNull Where<E> predicate, @NotNull Consumer<List<E>> chunkProcessor);
+
+    /**
+     * Processes the entities matching the predicate in parallel in the executor of the DAO, see
+     * {@link #scanPartitioned(int, Where, Consumer, Chunks, Executor)}. The DAOs produced by CDI use the managed
+     * executor of the application, other DAOs have no executor unless they override it.
+     *
+     * @throws IllegalStateException if the DAO has no executor
+     */
+    @Min(0)
+    long scanPartitioned(@Min(1) int partitions, @NotNull Where<E> predicate, @NotNull Consumer<List<E>> chunkProcessor,
+                         @NotNull Chunks chunks);
+
+    /**
+     * Splits the range of primary keys of the entities matching the predicate into partitions and processes
+     * every partition in its own thread and its own entity manager created by the entity manager factory.
+     * Numeric primary keys are split into equally wide ranges between minimal and maximal key, other
+     * primary keys into ranges with equal number of entities by {@code NTILE()} if the database supports it,
+     * otherwise by one pass over the ordered primary keys.
+     * Every partition is loaded in chunks ordered by primary key and the entity manager is cleared after
+     * each chunk, therefore the chunk processor receives detached entities. Every entity existing when
+     * the scan starts is processed exactly once.
+     * Every partition keeps the read-only mode and the deadline of the calling thread. The chunk processor
+     * is called within the {@link Chunks#getTransaction() chunk transaction} if any.
+     *
+     * @param predicate selects the entities, must not specify its own order
+     * @param chunkProcessor called concurrently from the partition threads
+     * @param chunks size of chunk, pause between chunks of one partition and the progress listener called
+     *               concurrently with total number of processed entities
+     * @param executor runs the partitions, e.g. the managed executor of the application
+     * @return number of processed entities
+     * @throws RuntimeException thrown by the chunk processor; the other partitions stop after the current chunk
+     * @throws java.util.concurrent.RejectedExecutionException if the executor rejects a partition; the submitted
+     *         partitions stop after the current chunk
+     */
+    @Min(0)
+    long scanPartitioned(@Min(1) int partitions, @NotNull Where<E> predicate, @NotNull Consumer<List<E>> chunkProcessor,
+                         @NotNull Chunks chunks, @NotNull Executor executor);
+
+    /**
+     * Claims a batch of entities for processing by locking their rows in the current transaction.
+     * Concurrent transactions claim disjoint batches: the rows locked by other transactions are skipped
+     * without waiting on PostgreSQL, MySQL, Oracle and SQL Server by single native statement, where
+     * {@code lockTimeout} rounded up to seconds limits the statement.
+     * Other databases, e.g. H2 and Derby, and entities without single table and single-column primary key
+     * do not skip the locked rows: the batch is locked by {@link LockModeType#PESSIMISTIC_WRITE} and the claim
+     * waits for the rows locked by other transactions at most {@code lockTimeout}, therefore concurrent claims
+     * queue up instead of claiming disjoint batches.
+     * The rows stay locked until the transaction ends.
+     *
+     * @param predicate selects pending entities, must not specify its own order
+     * @param batchSize maximal number of claimed entities
+     * @return claimed entities in ascending order of primary key, fewer than {@code batchSize} if other
+     *         transactions hold the remaining rows
+     * @throws javax.persistence.TransactionRequiredException if there is no active transaction
+     * @throws javax.persistence.LockTimeoutException if the database does not skip locked rows and the timeout elapsed
+     */
+    @NotNull
+    List<E> claimBatch(@NotNull Where<E> predicate, @Min(1) int batchSize, @NotNull Duration lockTimeout);
+
     /**
      * @see javax.persistence.EntityManager#getReference(Class, Object) load state lazily
      */
@@ -56,11 +177,43 @@ public interface IGDAO<E, PK extends Serializable & Comparable<PK>>
     /**
      * Retrieves an object that was previously persisted to the database
      * using the indicated id as primary key.
+     * If the DAO has {@link EntityCache entity cache}, the cached entities are loaded from the primary
+     * and every call returns own detached copy, on cache hit and on cache miss.
      */
     E load(@NotNull PK id);
 
     E load(@NotNull PK id, @NotNull LockModeType lock);
 
+    /**
+     * Retrieves multiple objects by primary keys.
+     * Entities already managed in the persistence context are returned without hitting the database,
+     * the rest is loaded by few queries with {@code IN} restriction of limited size.
+     *
+     * @param ids primary keys, duplicates are ignored
+     * @return entities in the order of {@code ids} and the keys which were not found
+     */
+    @NotNull
+    LoadResult<E, PK> loadAllById(@NotNull Collection<PK> ids);
+
+    /**
+     * Keyset (seek) pagination in ascending order of primary key.
+     *
+     * @param lastSeenId {@link KeysetPage#getContinuationKey() continuation key} of previous page,
+     *                   or null to load the first page
+     */
+    @NotNull
+    KeysetPage<E, PK> loadAfter(PK lastSeenId, @Min(1) int pageSize);
+
+    /**
+     * Keyset (seek) pagination in ascending order of primary key.
+     *
+     * @param lastSeenId {@link KeysetPage#getContinuationKey() continuation key} of previous page,
+     *                   or null to load the first page
+     * @param predicate  filter which must not specify its own order
+     */
+    @NotNull
+    KeysetPage<E, PK> loadAfter(PK lastSeenId, @Min(1) int pageSize, @NotNull Where<E> predicate);
+
     /**
      * Load (detached) entity object.
      *
@@ -150,8 +303,31 @@ public interface IGDAO<E, PK extends Serializable & Comparable<PK>>
 
     boolean hasId(@NotNull E entityObject);
 
+    /**
+     * Read-through cache used by {@link #load(Serializable)}. The entity loaded on cache miss is managed,
+     * the cache hit returns detached copy of the entity.
+     *
+     * @return cache with hit, miss and eviction statistics, or null if this DAO does not cache entities
+     */
+    EntityCache<PK, E> getEntityCache();
+
     /**
      * Remove an object from persistent storage in the database.
+     * The entity is not loaded if it can be deleted by bulk statement, see {@link #deleteByIds(Collection)}.
+     *
+     * @throws javax.persistence.EntityNotFoundException if the entity does not exist in database
      */
     void delete(@NotNull PK id);
+
+    /**
+     * Removes the objects from persistent storage in the database.
+     * Entities managed in the persistence context are removed through the persistence context.
+     * The others are deleted by few bulk statements with {@code IN} restriction of limited size
+     * if the entity has no collections, no association cascading the removal and no removal callbacks,
+     * otherwise they are loaded by few queries and removed.
+     *
+     * @return number of deleted entities
+     */
+    @Min(0)
+    long deleteByIds(@NotNull Collection<PK> ids);
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * One page of keyset (seek) pagination.
+ * Pass {@link #getContinuationKey()} as the last seen key to load the next page.
+ *
+ * @param <E> entity type
+ * @param <K> type of the unique sort key
+ */
+public final class KeysetPage<E, K extends Comparable<? super K>> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<E> content;
+    private final K continuationKey;
+    private final boolean hasNext;
+
+    KeysetPage(List<E> content, K continuationKey, boolean hasNext) {
+        this.content = unmodifiableList(content);
+        this.continuationKey = continuationKey;
+        this.hasNext = hasNext;
+    }
+
+    @NotNull
+    public List<E> getContent() {
+        return content;
+    }
+
+    /**
+     * @return sort key of the last entity in this page, or null if the page is empty
+     */
+    public K getContinuationKey() {
+        return continuationKey;
+    }
+
+    /**
+     * @return {@code true} if at least one more entity follows this page
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetPage{size=" + content.size() + ", continuationKey=" + continuationKey + ", hasNext=" + hasNext + '}';
+    }
+}
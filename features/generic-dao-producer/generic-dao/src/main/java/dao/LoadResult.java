@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Entities loaded by multiple primary keys, see {@link IGDAO#loadAllById(java.util.Collection)}.
+ *
+ * @param <E> entity type
+ * @param <PK> primary key type
+ */
+public final class LoadResult<E, PK> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<PK, E> found;
+    private final Set<PK> missing;
+
+    LoadResult(Map<PK, E> found, Set<PK> missing) {
+        this.found = unmodifiableMap(new LinkedHashMap<>(found));
+        this.missing = unmodifiableSet(new LinkedHashSet<>(missing));
+    }
+
+    /**
+     * @return found entities in the order of requested primary keys
+     */
+    @NotNull
+    public List<E> getFound() {
+        return unmodifiableList(new ArrayList<>(found.values()));
+    }
+
+    /**
+     * @return requested primary keys which do not exist in database, in the order of request
+     */
+    @NotNull
+    public Set<PK> getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return found entities mapped by primary key in the order of request
+     */
+    @NotNull
+    public Map<PK, E> asMap() {
+        return found;
+    }
+
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "LoadResult{found=" + found.size() + ", missing=" + missing + '}';
+    }
+}
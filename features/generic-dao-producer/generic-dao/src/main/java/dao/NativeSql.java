@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.OracleTemplates;
+import com.querydsl.sql.PostgreSQLTemplates;
+import com.querydsl.sql.SQLServerTemplates;
+import com.querydsl.sql.SQLTemplates;
+import com.querydsl.sql.TeradataTemplates;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Native statements specific to the databases which cannot be expressed in JPQL.
+ * The methods return null if the database does not support the statement.
+ */
+final class NativeSql {
+    private static final int[] H2_WINDOW_FUNCTIONS_VERSION = {1, 4, 198};
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)");
+
+    private NativeSql() {
+        throw new IllegalStateException("no instantiable constructor");
+    }
+
+    static boolean isRowNumberSupported(SQLTemplates templates) {
+        return isWindowCountSupported(templates) || templates instanceof TeradataTemplates;
+    }
+
+    static boolean isRowNumberSupported(SQLTemplates templates, DatabaseMetaData metaData) throws SQLException {
+        return isRowNumberSupported(templates)
+                || templates instanceof H2Templates && isH2WindowFunctionsVersion(metaData.getDatabaseProductVersion());
+    }
+
+    /**
+     * @param productVersion H2 version, e.g. {@code 1.4.200 (2019-10-14)}
+     * @return true if H2 supports window functions, since 1.4.198
+     */
+    static boolean isH2WindowFunctionsVersion(String productVersion) {
+        Matcher version = VERSION.matcher(productVersion);
+        if (!version.lookingAt()) {
+            return false;
+        }
+        for (int i = 0; i < H2_WINDOW_FUNCTIONS_VERSION.length; i++) {
+            int part = parseInt(version.group(i + 1));
+            if (part != H2_WINDOW_FUNCTIONS_VERSION[i]) {
+                return part > H2_WINDOW_FUNCTIONS_VERSION[i];
+            }
+        }
+        return true;
+    }
+
+    static boolean isWindowCountSupported(SQLTemplates templates) {
+        return templates instanceof PostgreSQLTemplates || templates instanceof OracleTemplates
+                || templates instanceof SQLServerTemplates;
+    }
+
+    static boolean isWindowCountSupported(SQLTemplates templates, DatabaseMetaData metaData) throws SQLException {
+        return isWindowCountSupported(templates)
+                || templates instanceof H2Templates && isH2WindowFunctionsVersion(metaData.getDatabaseProductVersion());
+    }
+
+    /**
+     * The NULL group is one group sorted after the other groups and the NULL sort values rank after the other values
+     * in both directions, the same as in the query of {@link TopNPerGroup}.
+     *
+     * @param restriction query selecting the identifiers of the ranked rows, its parameters keep their positions
+     * @return query ranking the rows by {@code ROW_NUMBER()} within the group and selecting at most {@code n}
+     *         rows of every group
+     */
+    static String rowNumberQuery(String table, String idColumn, String groupColumn, String sortColumn,
+                                 boolean ascending, String restriction, int n) {
+        String direction = ascending ? " asc" : " desc";
+        String ordering = nullsLast(sortColumn) + ", " + sortColumn + direction + ", " + idColumn + direction;
+        return "select * from " + table + " where " + idColumn + " in (select " + idColumn + " from (select " + idColumn
+                + ", row_number() over (partition by " + groupColumn + " order by " + ordering + ") rn from " + table
+                + " where " + idColumn + " in (" + restriction + ")) ranked where rn <= " + n + ")"
+                + " order by " + nullsLast(groupColumn) + ", " + groupColumn + ", " + ordering;
+    }
+
+    private static String nullsLast(String column) {
+        return "case when " + column + " is null then 1 else 0 end";
+    }
+
+    /**
+     * The last row is selected even if it follows after the page, therefore the number of rows is known
+     * for the empty page beyond the last one.
+     *
+     * @param restriction query selecting the identifiers of the counted rows, its parameters keep their positions
+     * @return query selecting the rows from {@code offset} to {@code offset + limit} ordered by identifier together
+     *         with the position of row in {@code rowNumberColumn} and the number of rows in {@code countColumn}
+     */
+    static String countOverQuery(String table, String idColumn, String rowNumberColumn, String countColumn,
+                                 String restriction, int offset, int limit) {
+        return "select * from (select t.*, row_number() over (order by t." + idColumn + ") " + rowNumberColumn
+                + ", count(*) over() " + countColumn + " from " + table + " t where t." + idColumn + " in (" + restriction
+                + ")) counted where " + rowNumberColumn + " > " + offset + " and " + rowNumberColumn + " <= "
+                + ((long) offset + limit) + " or " + rowNumberColumn + " = " + countColumn + " order by " + rowNumberColumn;
+    }
+
+    /**
+     * @param restriction query selecting the identifiers of the split rows, its parameters keep their positions
+     * @return query selecting the lowest and the highest identifier of at most {@code tiles} ranges of identifiers
+     *         with equal number of rows, in ascending order
+     */
+    static String tileBoundsQuery(String table, String idColumn, String lowColumn, String highColumn,
+                                  String restriction, int tiles) {
+        return "select min(" + idColumn + ") " + lowColumn + ", max(" + idColumn + ") " + highColumn + " from (select "
+                + idColumn + ", ntile(" + tiles + ") over (order by " + idColumn + ") tile_ from " + table + " where "
+                + idColumn + " in (" + restriction + ")) tiled group by tile_ order by tile_";
+    }
+
+    static boolean isSkipLockedSupported(SQLTemplates templates) {
+        return templates instanceof PostgreSQLTemplates || templates instanceof MySQLTemplates
+                || templates instanceof OracleTemplates || templates instanceof SQLServerTemplates;
+    }
+
+    /**
+     * Oracle does not limit the rows locked by {@code FOR UPDATE}, the rows skipping the locked ones are locked
+     * as they are fetched. Therefore the caller must fetch at most {@code limit} rows.
+     * SQL Server skips the locked rows of the table by {@code READPAST}, the restriction reads the table
+     * in the isolation level of the transaction, which does not wait with {@code READ_COMMITTED_SNAPSHOT}.
+     *
+     * @param restriction query selecting the identifiers of the claimed rows without ordering, its parameters
+     *                    keep their positions
+     * @return query selecting all columns of the table and locking at most {@code limit} rows in ascending order
+     *         of identifiers skipping the rows locked by other transactions, or null if the database does not skip
+     *         locked rows
+     */
+    static String skipLockedQuery(SQLTemplates templates, String table, String idColumn, String restriction, int limit) {
+        String where = " where t." + idColumn + " in (" + restriction + ") order by t." + idColumn;
+        if (templates instanceof PostgreSQLTemplates || templates instanceof MySQLTemplates) {
+            return "select t.* from " + table + " t" + where + " limit " + limit + " for update skip locked";
+        } else if (templates instanceof OracleTemplates) {
+            return "select t.* from " + table + " t" + where + " for update skip locked";
+        } else if (templates instanceof SQLServerTemplates) {
+            return "select top (" + limit + ") t.* from " + table + " t with (updlock, rowlock, readpast)" + where;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return query reading the number of rows in the table, given by parameter, from database statistics
+     */
+    static String rowCountEstimateQuery(SQLTemplates templates) {
+        if (templates instanceof PostgreSQLTemplates) {
+            return "select cast(reltuples as bigint) from pg_class where relname = ?";
+        } else if (templates instanceof MySQLTemplates) {
+            return "select table_rows from information_schema.tables where table_schema = database() and table_name = ?";
+        } else if (templates instanceof OracleTemplates) {
+            return "select num_rows from user_tables where table_name = ?";
+        } else if (templates instanceof H2Templates) {
+            return "select row_count_estimate from information_schema.tables where table_name = ?";
+        } else if (templates instanceof SQLServerTemplates) {
+            return "select sum(rows) from sys.partitions where object_id = object_id(?) and index_id in (0, 1)";
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @param ids identifier columns
+     * @param updated non-identifier columns
+     * @return statement inserting or updating one row, with parameters in the order of {@code ids} and {@code updated}
+     */
+    static String upsertStatement(SQLTemplates templates, String table, List<String> ids, List<String> updated) {
+        List<String> all = new ArrayList<>(ids);
+        all.addAll(updated);
+        String allColumns = join(all, "%s");
+        String parameters = join(all, "?");
+        if (templates instanceof H2Templates) {
+            return "merge into " + table + " (" + allColumns + ") key (" + join(ids, "%s") + ") values (" + parameters + ")";
+        } else if (templates instanceof PostgreSQLTemplates) {
+            return "insert into " + table + " (" + allColumns + ") values (" + parameters + ")"
+                    + " on conflict (" + join(ids, "%s") + ") do "
+                    + (updated.isEmpty() ? "nothing" : "update set " + join(updated, "%s = excluded.%<s"));
+        } else if (templates instanceof MySQLTemplates) {
+            return "insert into " + table + " (" + allColumns + ") values (" + parameters + ") on duplicate key update "
+                    + join(updated.isEmpty() ? ids : updated, "%s = values(%<s)");
+        } else if (templates instanceof OracleTemplates || templates instanceof SQLServerTemplates) {
+            String source = templates instanceof OracleTemplates
+                    ? "(select " + join(all, "? %s") + " from dual) s"
+                    : "(values (" + parameters + ")) as s (" + allColumns + ")";
+            String target = templates instanceof OracleTemplates ? " t" : " with (holdlock) as t";
+            return "merge into " + table + target + " using " + source
+                    + " on (" + String.join(" and ", ids.stream().map(id -> format("t.%s = s.%<s", id)).collect(toList())) + ")"
+                    + (updated.isEmpty() ? "" : " when matched then update set " + join(updated, "t.%s = s.%<s"))
+                    + " when not matched then insert (" + allColumns + ") values (" + join(all, "s.%s") + ")"
+                    + (templates instanceof OracleTemplates ? "" : ";");
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @param pattern applied to every column, e.g. {@code "%s = ?"}
+     * @return comma separated list of formatted columns
+     */
+    private static String join(List<String> columns, String pattern) {
+        return columns.stream()
+                .map(column -> format(pattern, column))
+                .collect(joining(", "));
+    }
+
+}
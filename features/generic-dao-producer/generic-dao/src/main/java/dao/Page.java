@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * One page of OFFSET pagination together with the total number of entities.
+ *
+ * @param <E> entity type
+ */
+public final class Page<E> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<E> content;
+    private final int offset;
+    private final int pageSize;
+    private final long total;
+    private final boolean totalEstimated;
+    private final boolean hasNext;
+
+    Page(List<E> content, int offset, int pageSize, long total, boolean totalEstimated) {
+        this(content, offset, pageSize, total, totalEstimated, offset + content.size() < total);
+    }
+
+    Page(List<E> content, int offset, int pageSize, long total, boolean totalEstimated, boolean hasNext) {
+        this.content = unmodifiableList(content);
+        this.offset = offset;
+        this.pageSize = pageSize;
+        this.total = total;
+        this.totalEstimated = totalEstimated;
+        this.hasNext = hasNext;
+    }
+
+    @NotNull
+    public List<E> getContent() {
+        return content;
+    }
+
+    @Min(0)
+    public int getOffset() {
+        return offset;
+    }
+
+    @Min(1)
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return total number of entities, see {@link #isTotalEstimated()}
+     */
+    @Min(0)
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return {@code true} if {@link #getTotal() total} was read from database statistics and may be inaccurate
+     */
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+
+    /**
+     * @return {@code true} if at least one more entity follows this page, even if the {@link #getTotal() total}
+     *         is estimated
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{offset=" + offset + ", size=" + content.size() + ", total=" + total
+                + (totalEstimated ? " (estimated)" : "") + '}';
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Reusable query handle created by {@link BaseDao#prepare(Where)}.
+ * The JPQL is serialized once, the entity path and alias proxy are resolved once,
+ * and each call only binds the parameters. Stable JPQL also hits the query plan cache of the provider.
+ * <p>
+ * Use {@link com.querydsl.core.types.dsl.Param} in the predicate for values varying per call
+ * and bind them with {@link #set(ParamExpression, Object)}. The handle is immutable and thread-safe.
+ *
+ * @param <E> entity type
+ */
+public final class PreparedQuery<E> {
+    private final BaseDaoImpl<E> dao;
+    private final String jpql;
+    private final Map<Object, String> constants;
+    private final String countJpql;
+    private final Map<Object, String> countConstants;
+    private final QueryModifiers modifiers;
+    private final Map<ParamExpression<?>, Object> params;
+
+    PreparedQuery(BaseDaoImpl<E> dao, QueryMetadata metadata) {
+        EntityManager em = dao.em();
+        JPQLTemplates templates = JPAProvider.getTemplates(em);
+
+        JPQLSerializer select = new JPQLSerializer(templates, em);
+        select.serialize(metadata, false, null);
+
+        JPQLSerializer count = new JPQLSerializer(templates, em);
+        count.serialize(metadata, true, null);
+
+        this.dao = dao;
+        jpql = select.toString();
+        constants = unmodifiableMap(new HashMap<>(select.getConstantToLabel()));
+        countJpql = count.toString();
+        countConstants = unmodifiableMap(new HashMap<>(count.getConstantToLabel()));
+        modifiers = metadata.getModifiers();
+        params = unmodifiableMap(new HashMap<>(metadata.getParams()));
+    }
+
+    private PreparedQuery(PreparedQuery<E> prepared, Map<ParamExpression<?>, Object> params) {
+        dao = prepared.dao;
+        jpql = prepared.jpql;
+        constants = prepared.constants;
+        countJpql = prepared.countJpql;
+        countConstants = prepared.countConstants;
+        modifiers = prepared.modifiers;
+        this.params = unmodifiableMap(params);
+    }
+
+    /**
+     * Binds the parameter.
+     *
+     * @return new handle with bound parameter value, this handle is not changed
+     */
+    @NotNull
+    public <T> PreparedQuery<E> set(@NotNull ParamExpression<T> param, T value) {
+        Map<ParamExpression<?>, Object> bound = new HashMap<>(params);
+        bound.put(param, value);
+        return new PreparedQuery<>(this, bound);
+    }
+
+    /**
+     * @throws com.querydsl.core.types.ParamNotSetException if a parameter is not bound
+     */
+    @NotNull
+    public List<E> loadAll() {
+        TypedQuery<E> query = createQuery();
+        if (modifiers.getOffsetAsInteger() != null) {
+            query.setFirstResult(modifiers.getOffsetAsInteger());
+        }
+        if (modifiers.getLimitAsInteger() != null) {
+            query.setMaxResults(modifiers.getLimitAsInteger());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * @throws com.querydsl.core.types.ParamNotSetException if a parameter is not bound
+     */
+    @NotNull
+    public List<E> loadAll(@Min(0) int pagingOffset, @Min(1) int pageSize) {
+        return createQuery()
+                .setFirstResult(pagingOffset)
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+
+    /**
+     * @return first entity or null
+     * @throws com.querydsl.core.types.ParamNotSetException if a parameter is not bound
+     */
+    public E load() {
+        List<E> first = createQuery()
+                .setMaxResults(1)
+                .getResultList();
+        return first.isEmpty() ? null : first.get(0);
+    }
+
+    /**
+     * @throws com.querydsl.core.types.ParamNotSetException if a parameter is not bound
+     */
+    @Min(0)
+    public long count() {
+        TypedQuery<Long> query = dao.withReadOnly(dao.withQueryTimeout(dao.readEm().createQuery(countJpql, Long.class)));
+        JPAUtil.setConstants(query, countConstants, params);
+        return query.getSingleResult();
+    }
+
+    private TypedQuery<E> createQuery() {
+        TypedQuery<E> query = dao.withReadOnly(dao.withQueryTimeout(dao.readEm().createQuery(jpql,
+                dao.getEntityType())));
+        JPAUtil.setConstants(query, constants, params);
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return jpql;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+/**
+ * Policy routing the reads of DAO to the read replica, see {@link DAO#replica()}.
+ * Writes and locked reads always use the primary entity manager.
+ */
+public enum ReplicaReads {
+    /**
+     * Reads go to the replica unless the primary entity manager is joined to a transaction,
+     * therefore the transaction reads its own writes.
+     */
+    OUTSIDE_TRANSACTION,
+
+    /**
+     * Only the reads of {@link BaseDao#isReadOnly() read-only} DAO or operation go to the replica,
+     * and only outside of transaction.
+     */
+    READ_ONLY
+}
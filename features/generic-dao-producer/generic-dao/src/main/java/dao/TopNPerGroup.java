@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.OrderSpecifier.NullHandling;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparablePath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPAQueryBase;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.querydsl.core.alias.Alias.alias;
+
+/**
+ * Loads the first {@code n} entities of every group, see {@link BaseDao#loadTopNPerGroup(Where, String, String, Order, int)}.
+ * The ranking by {@code ROW_NUMBER()} and by correlated subquery return the same entities: the NULL group is one group
+ * sorted after the other groups and the NULL values of the order attribute rank after the other values in both
+ * directions.
+ */
+final class TopNPerGroup {
+    private TopNPerGroup() {
+        throw new IllegalStateException("no instantiable constructor");
+    }
+
+    static <E> List<E> load(BaseDaoImpl<E> dao, Where<E> predicate, String groupAttribute, String orderAttribute,
+                            Order order, int n) {
+        EntityManager em = dao.readEm();
+        List<E> ranked = isRowNumberSupported(dao)
+                ? rankByRowNumber(dao, em, ids(dao, em, predicate), groupAttribute, orderAttribute, order, n)
+                : null;
+        return ranked == null ? rankByCount(dao, em, predicate, groupAttribute, orderAttribute, order, n) : ranked;
+    }
+
+    private static <E> JPAQuery<?> ids(BaseDaoImpl<E> dao, EntityManager em, Where<E> predicate) {
+        PathBuilder<E> entity = dao.newQueryEntity();
+        JPAQuery<E> q = dao.newQuery(em).from(entity);
+        predicate.where(q, entity, alias(dao.getEntityType(), entity));
+        return q.select(entity.get(dao.getIdAttributeName()));
+    }
+
+    private static boolean isRowNumberSupported(BaseDaoImpl<?> dao) {
+        if (!HibernateSupport.isAvailable()) {
+            return false;
+        }
+        try {
+            return dao.doWithConnection(connection ->
+                    NativeSql.isRowNumberSupported(BaseDaoImpl.findTemplates(connection), connection.getMetaData()));
+        } catch (SQLException e) {
+            throw new PersistenceException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * @param ids query selecting the identifiers of the entities matching the predicate
+     * @return ranked entities, or null if the mapping or the query does not allow the native query
+     */
+    private static <E> List<E> rankByRowNumber(BaseDaoImpl<E> dao, EntityManager em, JPAQuery<?> ids,
+                                               String groupAttribute, String orderAttribute, Order order, int n) {
+        Class<E> type = dao.getEntityType();
+        String table = HibernateSupport.tableName(em, type);
+        String id = HibernateSupport.idColumn(em, type);
+        String group = HibernateSupport.columnName(em, type, groupAttribute);
+        String sort = HibernateSupport.columnName(em, type, orderAttribute);
+        if (table == null || id == null || group == null || sort == null) {
+            return null;
+        }
+        Integer timeout = dao.getQueryTimeout();
+        return HibernateSupport.loadTranslated(em, type, ids.getMetadata(),
+                restriction -> NativeSql.rowNumberQuery(table, id, group, sort, order == Order.ASC, restriction, n),
+                dao.isReadOnly(), timeout == null ? null : (int) TimeUnit.MILLISECONDS.toSeconds(timeout));
+    }
+
+    /**
+     * The rank of entity is the number of the entities preceding it in the same group.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> List<E> rankByCount(BaseDaoImpl<E> dao, EntityManager em, Where<E> predicate,
+                                           String groupAttribute, String orderAttribute, Order order, int n) {
+        PathBuilder<E> entity = dao.newQueryEntity();
+        PathBuilder<E> preceding = dao.newQueryEntity(entity.getMetadata().getName() + "Preceding");
+        String idAttribute = dao.getIdAttributeName();
+        JPQLQuery<Long> rank = JPAExpressions.select(preceding.count())
+                .from(preceding)
+                .where(equalOrBothNull(preceding, entity, groupAttribute),
+                        precedes(preceding, entity, orderAttribute, order)
+                                .or(equalOrBothNull(preceding, entity, orderAttribute)
+                                        .and(precedes(preceding, entity, idAttribute, order))));
+        predicate.where((JPAQueryBase<E, ?>) (JPAQueryBase<?, ?>) rank, preceding, alias(dao.getEntityType(), preceding));
+
+        JPAQuery<E> q = dao.newQuery(em).from(entity);
+        predicate.where(q, entity, alias(dao.getEntityType(), entity));
+        return q.where(rank.lt((long) n))
+                .orderBy(nullsLast(Order.ASC, entity.getComparable(groupAttribute, Comparable.class)),
+                        nullsLast(order, entity.getComparable(orderAttribute, Comparable.class)),
+                        nullsLast(order, entity.getComparable(idAttribute, Comparable.class)))
+                .fetch();
+    }
+
+    private static BooleanExpression equalOrBothNull(PathBuilder<?> preceding, PathBuilder<?> entity, String attribute) {
+        return preceding.get(attribute).eq(entity.get(attribute))
+                .or(preceding.get(attribute).isNull().and(entity.get(attribute).isNull()));
+    }
+
+    /**
+     * NULL is preceded by any value.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static BooleanExpression precedes(PathBuilder<?> preceding, PathBuilder<?> entity, String attribute,
+                                              Order order) {
+        ComparablePath precedingValue = preceding.getComparable(attribute, Comparable.class);
+        ComparablePath value = entity.getComparable(attribute, Comparable.class);
+        return (order == Order.ASC ? precedingValue.lt(value) : precedingValue.gt(value))
+                .or(precedingValue.isNotNull().and(value.isNull()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static OrderSpecifier<?> nullsLast(Order order, ComparablePath<?> path) {
+        return new OrderSpecifier(order, path, NullHandling.NullsLast);
+    }
+}
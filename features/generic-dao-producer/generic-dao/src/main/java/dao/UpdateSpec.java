@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.core.dml.StoreClause;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Changed attributes of the entity updated by {@link IGDAO#updateFields(java.io.Serializable, java.util.function.Consumer)}.
+ *
+ * @param <E> entity type
+ */
+public final class UpdateSpec<E> {
+    private final JPAUpdateClause clause;
+    private final PathBuilder<E> entity;
+    private Object expectedVersion;
+
+    UpdateSpec(JPAUpdateClause clause, PathBuilder<E> entity) {
+        this.clause = clause;
+        this.entity = entity;
+    }
+
+    /**
+     * @return path of the entity, e.g. {@code spec.entity().getNumber("visits", Integer.class)}
+     */
+    @NotNull
+    public PathBuilder<E> entity() {
+        return entity;
+    }
+
+    /**
+     * Sets the attribute to {@code value}, or to {@code NULL} if the value is null.
+     * The value can be also {@link Expression} evaluated by the database.
+     */
+    @NotNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public UpdateSpec<E> set(@NotNull String attribute, Object value) {
+        PathBuilder<Object> path = entity.get(attribute);
+        if (value instanceof Expression) {
+            // raw call selects the overload with expression, the type of attribute is unknown
+            ((StoreClause) clause).set(path, (Expression) value);
+            return this;
+        }
+        return set(path, value);
+    }
+
+    /**
+     * Sets the attribute to {@code value}, or to {@code NULL} if the value is null.
+     */
+    @NotNull
+    public <T> UpdateSpec<E> set(@NotNull Path<T> path, T value) {
+        if (value == null) {
+            clause.setNull(path);
+        } else {
+            clause.set(path, value);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the attribute to the expression evaluated by the database, e.g. increment.
+     */
+    @NotNull
+    public <T> UpdateSpec<E> set(@NotNull Path<T> path, @NotNull Expression<? extends T> expression) {
+        clause.set(path, expression);
+        return this;
+    }
+
+    /**
+     * Optimistic locking. The entity is updated only if its {@link javax.persistence.Version version}
+     * equals to {@code version}.
+     */
+    @NotNull
+    public UpdateSpec<E> expectVersion(@NotNull Object version) {
+        expectedVersion = version;
+        return this;
+    }
+
+    Object getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    boolean isEmpty() {
+        return clause.isEmpty();
+    }
+}
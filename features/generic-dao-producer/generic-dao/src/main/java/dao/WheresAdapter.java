@@ -18,20 +18,27 @@
  */
 package dao;
 
-import com.querydsl.core.types.dsl.DslExpression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Param;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.stream.Collectors.toList;
+import static java.util.Collections.emptyList;
 
+/**
+ * Filters the query by the criteria whose keys are {@link #isKeyFilterable(String) filterable}.
+ * <p>
+ * The filterable keys are resolved once per shape of criteria and the resulting plan is cached and shared by all
+ * adapters of the same class, see {@link #compile(Map, Map)}. Therefore {@link #isKeyFilterable(String)},
+ * {@link #filterableAlias(String)}, {@link #filterableProperty(String)} and {@link #compile(Map, Map)} must depend
+ * only on their arguments and never on the state of an adapter instance; adapters which differ in these mappings
+ * must be different classes.
+ */
 public abstract class WheresAdapter implements Wheres {
-    private final List<Class<?>> aliasTypes = new ArrayList<>();
+    private volatile List<Class<?>> aliasTypes = emptyList();
     private final Map<String, Object> embeddedCriteria;
 
     public WheresAdapter(Map<String, Object> embeddedCriteria) {
@@ -46,28 +53,25 @@ public abstract class WheresAdapter implements Wheres {
 
     protected abstract String filterableProperty(String key);
 
+    /**
+     * Compiles the predicate of one filter shape, i.e. the filterable entries found in the criteria keys.
+     * The predicate is cached and shared by all adapters of this class, the criteria values are only bound
+     * to the parameters on every call. Therefore the predicate must depend only on the entries and builders.
+     * Criteria with null value have no parameter, they are removed from the criteria and not filtered.
+     *
+     * @param params parameters standing for the non-null criteria values of the entries
+     * @return predicate with parameters, or null if the filter is applied by
+     *         {@link #where(JPAQuery, Map, Map)} on every call
+     */
+    protected Predicate compile(Map<Entry, Param<Object>> params, Map<Alias, PathBuilder<?>> builders) {
+        return null;
+    }
+
     @Override
     public void where(JPAQuery query, Map<Alias, PathBuilder<?>> builders) {
-        Map<Entry, Object> customCriteria = new HashMap<>();
-        for (@SuppressWarnings("checkstyle:emptyforiteratorpad")
-             Iterator<Map.Entry<String, Object>> all = embeddedCriteria.entrySet().iterator(); all.hasNext(); ) {
-            Map.Entry<String, Object> embedded = all.next();
-            if (isKeyFilterable(embedded.getKey())) {
-                Alias alias = new Alias(filterableAlias(embedded.getKey()));
-                if (builders.containsKey(alias)) {
-                    customCriteria.put(new Entry(alias, filterableProperty(embedded.getKey())), embedded.getValue());
-                    all.remove();
-                }
-            }
-        }
-        aliasTypes.clear();
-
-        aliasTypes.addAll(builders.values()
-                .stream()
-                .map(DslExpression::getType)
-                .collect(toList()));
-
-        where(query, builders, customCriteria);
+        FilterPlan plan = FilterCompiler.plan(this, embeddedCriteria, builders);
+        aliasTypes = plan.getAliasTypes();
+        plan.apply(this, query, builders, embeddedCriteria);
     }
 
     public List<Class<?>> getAliasTypes() {
@@ -75,6 +79,7 @@ public abstract class WheresAdapter implements Wheres {
     }
 
     public Class<?>[] aliasTypes() {
-        return aliasTypes.toArray(new Class<?>[aliasTypes.size()]);
+        List<Class<?>> types = aliasTypes;
+        return types.toArray(new Class<?>[types.size()]);
     }
 }
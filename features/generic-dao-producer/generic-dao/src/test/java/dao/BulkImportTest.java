@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.sql.DerbyTemplates;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.PostgreSQLTemplates;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkImportTest {
+    private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    @Test
+    public void shouldLoadInH2() throws SQLException {
+        assertThat(BulkImport.isSupported(new H2Templates(), connection))
+                .isTrue();
+    }
+
+    @Test
+    public void shouldFallBackWithoutDriverApi() throws SQLException {
+        assertThat(BulkImport.isSupported(new MySQLTemplates(), connection))
+                .isFalse();
+
+        assertThat(BulkImport.isSupported(new PostgreSQLTemplates(), connection))
+                .isFalse();
+
+        assertThat(BulkImport.isSupported(new DerbyTemplates(), connection))
+                .isFalse();
+    }
+}
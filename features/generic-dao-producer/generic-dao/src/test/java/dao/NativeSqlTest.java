@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package dao;
+
+import com.querydsl.sql.DerbyTemplates;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.OracleTemplates;
+import com.querydsl.sql.PostgreSQLTemplates;
+import com.querydsl.sql.SQLServer2012Templates;
+import com.querydsl.sql.TeradataTemplates;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NativeSqlTest {
+    @Test
+    public void shouldCountOverWindow() {
+        assertThat(NativeSql.isWindowCountSupported(new PostgreSQLTemplates()))
+                .isTrue();
+
+        assertThat(NativeSql.isWindowCountSupported(new OracleTemplates()))
+                .isTrue();
+
+        assertThat(NativeSql.isWindowCountSupported(new SQLServer2012Templates()))
+                .isTrue();
+
+        assertThat(NativeSql.isWindowCountSupported(new MySQLTemplates()))
+                .isFalse();
+
+        assertThat(NativeSql.isWindowCountSupported(new H2Templates()))
+                .isFalse();
+
+        assertThat(NativeSql.countOverQuery("MY_ENTITY", "ID", "row_number_", "total_count_",
+                "select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?", 20, 10))
+                .isEqualTo("select * from (select t.*, row_number() over (order by t.ID) row_number_,"
+                        + " count(*) over() total_count_ from MY_ENTITY t"
+                        + " where t.ID in (select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?)) counted"
+                        + " where row_number_ > 20 and row_number_ <= 30 or row_number_ = total_count_"
+                        + " order by row_number_");
+    }
+
+    @Test
+    public void shouldSplitIntoTiles() {
+        assertThat(NativeSql.tileBoundsQuery("MY_ENTITY", "ID", "tile_low_", "tile_high_",
+                "select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?", 4))
+                .isEqualTo("select min(ID) tile_low_, max(ID) tile_high_ from (select ID, ntile(4) over (order by ID) tile_"
+                        + " from MY_ENTITY where ID in (select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?))"
+                        + " tiled group by tile_ order by tile_");
+    }
+
+    @Test
+    public void shouldRankByRowNumberSinceH2WindowFunctions() {
+        assertThat(NativeSql.isH2WindowFunctionsVersion("1.4.192 (2016-05-26)"))
+                .isFalse();
+
+        assertThat(NativeSql.isH2WindowFunctionsVersion("1.4.198 (2019-02-22)"))
+                .isTrue();
+
+        assertThat(NativeSql.isH2WindowFunctionsVersion("2.1.214 (2022-06-13)"))
+                .isTrue();
+
+        assertThat(NativeSql.isRowNumberSupported(new TeradataTemplates()))
+                .isTrue();
+
+        assertThat(NativeSql.isRowNumberSupported(new H2Templates()))
+                .isFalse();
+    }
+
+    @Test
+    public void shouldRankNullsLast() {
+        assertThat(NativeSql.rowNumberQuery("MY_ENTITY", "ID", "CATEGORY", "COURSE_NAME", false,
+                "select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?", 2))
+                .isEqualTo("select * from MY_ENTITY where ID in (select ID from (select ID, row_number() over"
+                        + " (partition by CATEGORY order by case when COURSE_NAME is null then 1 else 0 end,"
+                        + " COURSE_NAME desc, ID desc) rn from MY_ENTITY"
+                        + " where ID in (select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?)) ranked"
+                        + " where rn <= 2) order by case when CATEGORY is null then 1 else 0 end, CATEGORY,"
+                        + " case when COURSE_NAME is null then 1 else 0 end, COURSE_NAME desc, ID desc");
+    }
+
+    @Test
+    public void shouldLockSkippingLockedRows() {
+        String restriction = "select e0_.ID as col_0_0_ from MY_ENTITY e0_ where e0_.CATEGORY=?";
+
+        assertThat(NativeSql.skipLockedQuery(new PostgreSQLTemplates(), "MY_ENTITY", "ID", restriction, 10))
+                .isEqualTo("select t.* from MY_ENTITY t where t.ID in (" + restriction + ") order by t.ID"
+                        + " limit 10 for update skip locked");
+
+        assertThat(NativeSql.skipLockedQuery(new MySQLTemplates(), "MY_ENTITY", "ID", restriction, 10))
+                .isEqualTo("select t.* from MY_ENTITY t where t.ID in (" + restriction + ") order by t.ID"
+                        + " limit 10 for update skip locked");
+
+        assertThat(NativeSql.skipLockedQuery(new OracleTemplates(), "MY_ENTITY", "ID", restriction, 10))
+                .isEqualTo("select t.* from MY_ENTITY t where t.ID in (" + restriction + ") order by t.ID"
+                        + " for update skip locked");
+
+        assertThat(NativeSql.skipLockedQuery(new SQLServer2012Templates(), "MY_ENTITY", "ID", restriction, 10))
+                .isEqualTo("select top (10) t.* from MY_ENTITY t with (updlock, rowlock, readpast)"
+                        + " where t.ID in (" + restriction + ") order by t.ID");
+    }
+
+    @Test
+    public void shouldLockRootTableOfJoin() {
+        String restriction = "select e0_.ID as col_0_0_ from MY_ENTITY e0_ inner join OTHER o1_ on e0_.OTHER_ID=o1_.ID"
+                + " where o1_.NAME=?";
+
+        assertThat(NativeSql.skipLockedQuery(new SQLServer2012Templates(), "MY_ENTITY", "ID", restriction, 1))
+                .isEqualTo("select top (1) t.* from MY_ENTITY t with (updlock, rowlock, readpast)"
+                        + " where t.ID in (" + restriction + ") order by t.ID");
+    }
+
+    @Test
+    public void shouldNotSkipLockedRowsInOtherDatabases() {
+        String restriction = "select e0_.ID as col_0_0_ from MY_ENTITY e0_";
+
+        assertThat(NativeSql.isSkipLockedSupported(new H2Templates()))
+                .isFalse();
+
+        assertThat(NativeSql.skipLockedQuery(new H2Templates(), "MY_ENTITY", "ID", restriction, 10))
+                .isNull();
+
+        assertThat(NativeSql.skipLockedQuery(new DerbyTemplates(), "MY_ENTITY", "ID", restriction, 10))
+                .isNull();
+    }
+
+    @Test
+    public void shouldUpsertInH2() {
+        assertThat(NativeSql.upsertStatement(new H2Templates(), "MY_ENTITY", asList("ID"), asList("NAME", "CATEGORY")))
+                .isEqualTo("merge into MY_ENTITY (ID, NAME, CATEGORY) key (ID) values (?, ?, ?)");
+    }
+
+    @Test
+    public void shouldUpsertInPostgreSQL() {
+        assertThat(NativeSql.upsertStatement(new PostgreSQLTemplates(), "MY_ENTITY", asList("ID"), asList("NAME", "CATEGORY")))
+                .isEqualTo("insert into MY_ENTITY (ID, NAME, CATEGORY) values (?, ?, ?)"
+                        + " on conflict (ID) do update set NAME = excluded.NAME, CATEGORY = excluded.CATEGORY");
+
+        assertThat(NativeSql.upsertStatement(new PostgreSQLTemplates(), "LINK", asList("A", "B"), emptyList()))
+                .isEqualTo("insert into LINK (A, B) values (?, ?) on conflict (A, B) do nothing");
+    }
+
+    @Test
+    public void shouldUpsertInMySQL() {
+        assertThat(NativeSql.upsertStatement(new MySQLTemplates(), "MY_ENTITY", asList("ID"), asList("NAME", "CATEGORY")))
+                .isEqualTo("insert into MY_ENTITY (ID, NAME, CATEGORY) values (?, ?, ?)"
+                        + " on duplicate key update NAME = values(NAME), CATEGORY = values(CATEGORY)");
+
+        assertThat(NativeSql.upsertStatement(new MySQLTemplates(), "LINK", asList("A", "B"), emptyList()))
+                .isEqualTo("insert into LINK (A, B) values (?, ?) on duplicate key update A = values(A), B = values(B)");
+    }
+
+    @Test
+    public void shouldUpsertInOracle() {
+        assertThat(NativeSql.upsertStatement(new OracleTemplates(), "MY_ENTITY", asList("ID"), asList("NAME", "CATEGORY")))
+                .isEqualTo("merge into MY_ENTITY t using (select ? ID, ? NAME, ? CATEGORY from dual) s on (t.ID = s.ID)"
+                        + " when matched then update set t.NAME = s.NAME, t.CATEGORY = s.CATEGORY"
+                        + " when not matched then insert (ID, NAME, CATEGORY) values (s.ID, s.NAME, s.CATEGORY)");
+
+        assertThat(NativeSql.upsertStatement(new OracleTemplates(), "LINK", asList("A", "B"), emptyList()))
+                .isEqualTo("merge into LINK t using (select ? A, ? B from dual) s on (t.A = s.A and t.B = s.B)"
+                        + " when not matched then insert (A, B) values (s.A, s.B)");
+    }
+
+    @Test
+    public void shouldUpsertInSQLServer() {
+        assertThat(NativeSql.upsertStatement(new SQLServer2012Templates(), "MY_ENTITY", asList("ID"), asList("NAME")))
+                .isEqualTo("merge into MY_ENTITY with (holdlock) as t using (values (?, ?)) as s (ID, NAME) on (t.ID = s.ID)"
+                        + " when matched then update set t.NAME = s.NAME"
+                        + " when not matched then insert (ID, NAME) values (s.ID, s.NAME);");
+    }
+
+    @Test
+    public void shouldNotUpsertInOtherDatabases() {
+        assertThat(NativeSql.upsertStatement(new DerbyTemplates(), "MY_ENTITY", asList("ID"), asList("NAME")))
+                .isNull();
+    }
+}
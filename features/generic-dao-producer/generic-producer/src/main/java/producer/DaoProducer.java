@@ -18,20 +18,28 @@
  */
 package producer;
 
+import dao.AsyncGenericDAO;
+import dao.AsyncIDAO;
+import dao.AsyncIGDAO;
+import dao.AsyncLDAO;
 import dao.DAO;
 import dao.DaoWithoutId;
+import dao.EntityCache;
 import dao.GenericDaoWithoutId;
 import dao.GenericNumericDAO;
 import dao.IDAO;
 import dao.INumericDAO;
 import dao.LDAO;
+import dao.ReplicaReads;
 
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.ContextNotActiveException;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Default;
+import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.New;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.TransientReference;
@@ -39,17 +47,54 @@ import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.InjectionPoint;
 import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toSet;
 
 @ApplicationScoped
 @SuppressWarnings("unused")
 public class DaoProducer {
+    /**
+     * Default executor of Java EE container, see {@link #managedExecutor()}.
+     */
+    private static final String DEFAULT_EXECUTOR = "java:comp/DefaultManagedExecutorService";
+
+    /**
+     * Entity caches shared by DAOs of the same entity and datasource qualifier, see {@link DAO#cacheSize()}.
+     */
+    private final ConcurrentMap<String, EntityCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Resolved entity manager beans by datasource qualifier.
+     */
+    private final ConcurrentMap<Class<? extends Annotation>, Bean<?>> entityManagerBeans = new ConcurrentHashMap<>();
+
+    /**
+     * Shared DAO instances, see {@link #reuseDao(InjectionPoint, BeanManager, Class, BiFunction)}.
+     */
+    private final ConcurrentMap<List<?>, Object> daos = new ConcurrentHashMap<>();
+
+    @Inject
+    private Instance<ManagedExecutorService> managedExecutors;
+
+    private ManagedExecutorService managedExecutor;
 
     @Produces
     @Dependent
@@ -111,16 +156,90 @@ public class DaoProducer {
         return buildDaoWithOneGenericType(ip, bm, (DAOFactory<T>) f);
     }
 
+    @Produces
+    @Dependent
+    @DAO
+    public <T> AsyncIDAO<T> produceAsyncDaoWithIntegerId(@TransientReference InjectionPoint ip,
+                                                         @TransientReference BeanManager bm) {
+        return buildAsyncDao(ip, bm, new AsyncIDAOFactory<T>());
+    }
+
+    @Produces
+    @Dependent
+    @DAO
+    public <T> AsyncLDAO<T> produceAsyncDaoWithLongId(@TransientReference InjectionPoint ip,
+                                                      @TransientReference BeanManager bm) {
+        return buildAsyncDao(ip, bm, new AsyncLDAOFactory<T>());
+    }
+
+    @Produces
+    @Dependent
+    @Default
+    public <T> AsyncIDAO<T> produceUnqualifiedAsyncDaoWithIntegerId(@TransientReference InjectionPoint ip,
+                                                                    @TransientReference BeanManager bm) {
+        return buildAsyncDao(ip, bm, new AsyncIDAOFactory<T>());
+    }
+
+    @Produces
+    @Dependent
+    @Default
+    public <T> AsyncLDAO<T> produceUnqualifiedAsyncDaoWithLongId(@TransientReference InjectionPoint ip,
+                                                                 @TransientReference BeanManager bm) {
+        return buildAsyncDao(ip, bm, new AsyncLDAOFactory<T>());
+    }
+
+    /**
+     * The {@link AsyncIGDAO} tasks and the partitioned scans of {@link dao.IGDAO} run in the
+     * {@link ManagedExecutorService} bean if the application produces one, otherwise in the default executor
+     * of the container. The container manages the threads and their context, and rejects the tasks if the executor
+     * is saturated.
+     */
+    private synchronized ManagedExecutorService managedExecutor() {
+        if (managedExecutor == null) {
+            if (managedExecutors.isUnsatisfied()) {
+                try {
+                    managedExecutor = (ManagedExecutorService) new InitialContext().lookup(DEFAULT_EXECUTOR);
+                } catch (NamingException e) {
+                    throw new IllegalStateException("produce " + ManagedExecutorService.class.getSimpleName()
+                            + " bean for asynchronous DAOs and partitioned scans, " + DEFAULT_EXECUTOR
+                            + " is not available", e);
+                }
+            } else {
+                managedExecutor = managedExecutors.get();
+            }
+        }
+        return managedExecutor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R extends AsyncIGDAO<E, PK>, E, PK extends Number & Comparable<PK>>
+    R buildAsyncDao(InjectionPoint ip, BeanManager bm, AsyncDaoFactory<R, E, PK> factory) {
+        Type daoType = ip.getType();
+        if (daoType instanceof ParameterizedType) {
+            ParameterizedType type = (ParameterizedType) daoType;
+            Type[] types = type.getActualTypeArguments();
+            Class<E> entity = (Class<E>) types[0];
+            return reuseDao(ip, bm, entity, (em, replica) -> factory.build(em.getEntityManagerFactory(),
+                    replica == null ? null : replica.getEntityManagerFactory(), managedExecutor(),
+                    entity, lookupCache(ip, entity), findDaoQualifier(ip)));
+        } else {
+            throw new IllegalArgumentException("Use Generic Type in the interface "
+                    + AsyncIDAO.class.getSimpleName()
+                    + " or "
+                    + AsyncLDAO.class.getSimpleName()
+                    + " in the injection point " + ip.toString());
+        }
+    }
+
     @SuppressWarnings("unchecked")
-    private static <E>
+    private <E>
     DaoWithoutId<E> buildDaoWithOneGenericType(InjectionPoint ip, BeanManager bm, DAOFactory<E> factory) {
         Type daoType = ip.getType();
         if (daoType instanceof ParameterizedType) {
             ParameterizedType type = (ParameterizedType) daoType;
             Type[] types = type.getActualTypeArguments();
             Class<E> entity = (Class<E>) types[0];
-            EntityManager em = lookupEntityManager(ip, bm);
-            return factory.build(entity, em);
+            return reuseDao(ip, bm, entity, (em, replica) -> factory.build(entity, em, replica, findDaoQualifier(ip)));
         } else {
             throw new IllegalArgumentException("Use Generic Type in the interface "
                     + DaoWithoutId.class.getSimpleName()
@@ -129,15 +248,16 @@ public class DaoProducer {
     }
 
     @SuppressWarnings("unchecked")
-    private static <R extends INumericDAO<E, PK>, E, PK extends Number & Comparable<PK>>
+    private <R extends INumericDAO<E, PK>, E, PK extends Number & Comparable<PK>>
     R buildDaoWithOneGenericType(InjectionPoint ip, BeanManager bm, GenericNumericDaoFactory<R, E, PK> factory) {
         Type daoType = ip.getType();
         if (daoType instanceof ParameterizedType) {
             ParameterizedType type = (ParameterizedType) daoType;
             Type[] types = type.getActualTypeArguments();
             Class<E> entity = (Class<E>) types[0];
-            EntityManager em = lookupEntityManager(ip, bm);
-            return factory.build(entity, em);
+            return reuseDao(ip, bm, entity,
+                    (em, replica) -> factory.build(entity, em, replica, lookupCache(ip, entity), findDaoQualifier(ip),
+                            this::managedExecutor));
         } else {
             throw new IllegalArgumentException("Use Generic Type in the interface "
                     + IDAO.class.getSimpleName()
@@ -155,17 +275,42 @@ public class DaoProducer {
     }
 
     @SuppressWarnings("checkstyle:whitespacearound")
-    private static EntityManager lookupEntityManager(BeanManager bm, Class<? extends Annotation> qualifier) {
+    private static Bean<?> resolveEntityManagerBean(BeanManager bm, Class<? extends Annotation> qualifier) {
         Set<Bean<?>> beans = bm.getBeans(EntityManager.class, new AnnotationLiteral<Any>() {})
                 .stream()
                 .filter(bean -> hasQualifier(bean, qualifier))
                 .collect(toSet());
-        Bean<?> bean = bm.resolve(beans);
+        return bm.resolve(beans);
+    }
+
+    /**
+     * DAOs are stateless. The DAO of normal-scoped entity managers is bound to the client proxies which are valid
+     * in every context, therefore one instance is shared by all injection points of the same DAO type,
+     * entity type and qualifier.
+     *
+     * @param factory builds the DAO from the primary entity manager and the replica, the replica is null
+     *                if {@link DAO#replica()} is not specified
+     */
+    @SuppressWarnings("unchecked")
+    private <D> D reuseDao(InjectionPoint ip, BeanManager bm, Class<?> entity,
+                           BiFunction<EntityManager, EntityManager, D> factory) {
+        Bean<?> bean = lookupEntityManagerBean(ip, bm);
+        Bean<?> replicaBean = lookupReplicaBean(ip, bm);
+        if (!bm.isNormalScope(bean.getScope()) || replicaBean != null && !bm.isNormalScope(replicaBean.getScope())) {
+            return factory.apply(getReference(bm, bean), replicaBean == null ? null : getReference(bm, replicaBean));
+        }
+        Type daoType = ((ParameterizedType) ip.getType()).getRawType();
+        List<?> key = asList(daoType, entity, findDaoQualifier(ip));
+        return (D) daos.computeIfAbsent(key,
+                k -> factory.apply(getReference(bm, bean), replicaBean == null ? null : getReference(bm, replicaBean)));
+    }
+
+    private static EntityManager getReference(BeanManager bm, Bean<?> bean) {
         CreationalContext<?> ctx = bm.createCreationalContext(bean);
         return EntityManager.class.cast(bm.getReference(bean, EntityManager.class, ctx));
     }
 
-    private static EntityManager lookupEntityManager(InjectionPoint ip, BeanManager bm) {
+    private Bean<?> lookupEntityManagerBean(InjectionPoint ip, BeanManager bm) {
         final Class def = Default.class;
 
         @SuppressWarnings("unchecked")
@@ -177,13 +322,61 @@ public class DaoProducer {
                 .orElse(def);
 
         if (bm.isQualifier(annotation)) {
-            return lookupEntityManager(bm, annotation);
+            return entityManagerBeans.computeIfAbsent(annotation, qualifier -> resolveEntityManagerBean(bm, qualifier));
         } else {
             throw new ContextNotActiveException("no datasource qualifier nor stereotype presents in the "
                     + "injection point " + ip);
         }
     }
 
+    /**
+     * @return entity manager bean of {@link DAO#replica()}, or null if the replica is not specified
+     */
+    private Bean<?> lookupReplicaBean(InjectionPoint ip, BeanManager bm) {
+        Class<? extends Annotation> replica = findDaoQualifier(ip).replica();
+        if (replica == Annotation.class) {
+            return null;
+        } else if (bm.isQualifier(replica)) {
+            return entityManagerBeans.computeIfAbsent(replica, qualifier -> resolveEntityManagerBean(bm, qualifier));
+        } else {
+            throw new ContextNotActiveException("replica " + replica.getName() + " is not datasource qualifier in the "
+                    + "injection point " + ip);
+        }
+    }
+
+    /**
+     * @return qualifier of the injection point, or qualifier with default attributes if the DAO is unqualified
+     */
+    private static DAO findDaoQualifier(InjectionPoint ip) {
+        return ip.getQualifiers()
+                .stream()
+                .filter(q -> q.annotationType() == DAO.class)
+                .map(DAO.class::cast)
+                .findFirst()
+                .orElse(DefaultDAO.INSTANCE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E, PK> EntityCache<PK, E> lookupCache(InjectionPoint ip, Class<E> entity) {
+        DAO dao = findDaoQualifier(ip);
+
+        if (dao.cacheSize() <= 0) {
+            return null;
+        }
+
+        String key = entity.getName() + '@' + dao.value().getName();
+        EntityCache<?, ?> cache = caches.computeIfAbsent(key,
+                k -> new EntityCache<>(dao.cacheSize(), dao.cacheTtl(), dao.cacheTtlUnit()));
+        if (cache.getMaximumSize() != dao.cacheSize()
+                || cache.getTtl(TimeUnit.NANOSECONDS) != dao.cacheTtlUnit().toNanos(dao.cacheTtl())) {
+            throw new IllegalArgumentException("The cache of " + entity.getName() + " is shared by the DAOs of "
+                    + dao.value().getName() + ", the cacheSize and cacheTtl of the injection point " + ip
+                    + " conflict with other injection point: " + cache.getMaximumSize() + " entities, "
+                    + cache.getTtl(SECONDS) + " seconds");
+        }
+        return (EntityCache<PK, E>) cache;
+    }
+
     private static boolean hasQualifier(Bean<?> bean, Class<? extends Annotation> qualifier) {
         return bean.getQualifiers()
                 .stream()
@@ -192,17 +385,26 @@ public class DaoProducer {
     }
 
     interface GenericNumericDaoFactory<R extends INumericDAO<E, PK>, E, PK extends Number & Comparable<PK>> {
-        R build(Class<E> entityType, EntityManager em);
+        /**
+         * @param scanExecutor executor of partitioned scans, resolved when the first scan starts
+         */
+        R build(Class<E> entityType, EntityManager em, EntityManager replica, EntityCache<PK, E> cache, DAO settings,
+                Supplier<? extends Executor> scanExecutor);
+    }
+
+    interface AsyncDaoFactory<R extends AsyncIGDAO<E, PK>, E, PK extends Number & Comparable<PK>> {
+        R build(EntityManagerFactory emf, EntityManagerFactory replicaEmf, Executor executor, Class<E> entityType,
+                EntityCache<PK, E> cache, DAO settings);
     }
 
     interface GenericDaoFactory<E> {
-        DaoWithoutId<E> build(Class<E> entityType, EntityManager em);
+        DaoWithoutId<E> build(Class<E> entityType, EntityManager em, EntityManager replica, DAO settings);
     }
 
     static class DAOFactory<E> implements GenericDaoFactory<E> {
 
         @Override
-        public DaoWithoutId<E> build(Class<E> entityType, EntityManager em) {
+        public DaoWithoutId<E> build(Class<E> entityType, EntityManager em, EntityManager replica, DAO settings) {
             return new GenericDaoWithoutId<E>(entityType) {
                 private static final long serialVersionUID = 1L;
 
@@ -210,6 +412,21 @@ public class DaoProducer {
                 protected EntityManager em() {
                     return em;
                 }
+
+                @Override
+                protected EntityManager replicaEm() {
+                    return replica;
+                }
+
+                @Override
+                protected ReplicaReads replicaReads() {
+                    return settings.replicaReads();
+                }
+
+                @Override
+                public boolean isReadOnly() {
+                    return settings.readOnly() || super.isReadOnly();
+                }
             };
         }
     }
@@ -217,7 +434,8 @@ public class DaoProducer {
     static class IDAOFactory<E> implements GenericNumericDaoFactory<IDAO<E>, E, Integer> {
 
         @Override
-        public IDAO<E> build(Class<E> entityType, EntityManager em) {
+        public IDAO<E> build(Class<E> entityType, EntityManager em, EntityManager replica,
+                             EntityCache<Integer, E> cache, DAO settings, Supplier<? extends Executor> scanExecutor) {
             class ID extends GenericNumericDAO<E, Integer> implements IDAO<E> {
                 private static final long serialVersionUID = 1L;
 
@@ -229,6 +447,36 @@ public class DaoProducer {
                 protected EntityManager em() {
                     return em;
                 }
+
+                @Override
+                protected EntityCache<Integer, E> cache() {
+                    return cache;
+                }
+
+                @Override
+                protected EntityManager replicaEm() {
+                    return replica;
+                }
+
+                @Override
+                protected ReplicaReads replicaReads() {
+                    return settings.replicaReads();
+                }
+
+                @Override
+                public boolean isReadOnly() {
+                    return settings.readOnly() || super.isReadOnly();
+                }
+
+                @Override
+                protected int getFetchBatchSize() {
+                    return settings.fetchBatchSize() > 0 ? settings.fetchBatchSize() : super.getFetchBatchSize();
+                }
+
+                @Override
+                protected Executor getScanExecutor() {
+                    return scanExecutor.get();
+                }
             }
 
             return new ID(entityType);
@@ -238,7 +486,8 @@ public class DaoProducer {
     static class LDAOFactory<E> implements GenericNumericDaoFactory<LDAO<E>, E, Long> {
 
         @Override
-        public LDAO<E> build(Class<E> entityType, EntityManager em) {
+        public LDAO<E> build(Class<E> entityType, EntityManager em, EntityManager replica,
+                             EntityCache<Long, E> cache, DAO settings, Supplier<? extends Executor> scanExecutor) {
             class LD extends GenericNumericDAO<E, Long> implements LDAO<E> {
                 private static final long serialVersionUID = 1L;
 
@@ -250,10 +499,119 @@ public class DaoProducer {
                 protected EntityManager em() {
                     return em;
                 }
+
+                @Override
+                protected EntityCache<Long, E> cache() {
+                    return cache;
+                }
+
+                @Override
+                protected EntityManager replicaEm() {
+                    return replica;
+                }
+
+                @Override
+                protected ReplicaReads replicaReads() {
+                    return settings.replicaReads();
+                }
+
+                @Override
+                public boolean isReadOnly() {
+                    return settings.readOnly() || super.isReadOnly();
+                }
+
+                @Override
+                protected int getFetchBatchSize() {
+                    return settings.fetchBatchSize() > 0 ? settings.fetchBatchSize() : super.getFetchBatchSize();
+                }
+
+                @Override
+                protected Executor getScanExecutor() {
+                    return scanExecutor.get();
+                }
             }
 
             return new LD(entityType);
         }
     }
 
+    static class AsyncIDAOFactory<E> implements AsyncDaoFactory<AsyncIDAO<E>, E, Integer> {
+
+        @Override
+        public AsyncIDAO<E> build(EntityManagerFactory emf, EntityManagerFactory replicaEmf, Executor executor,
+                                  Class<E> entityType, EntityCache<Integer, E> cache, DAO settings) {
+            class AI extends AsyncGenericDAO<E, Integer> implements AsyncIDAO<E> {
+                AI() {
+                    super(emf, replicaEmf, executor,
+                            (em, replica) -> new IDAOFactory<E>().build(entityType, em, replica, cache, settings,
+                                    () -> executor));
+                }
+            }
+
+            return new AI();
+        }
+    }
+
+    static class AsyncLDAOFactory<E> implements AsyncDaoFactory<AsyncLDAO<E>, E, Long> {
+
+        @Override
+        public AsyncLDAO<E> build(EntityManagerFactory emf, EntityManagerFactory replicaEmf, Executor executor,
+                                  Class<E> entityType, EntityCache<Long, E> cache, DAO settings) {
+            class AL extends AsyncGenericDAO<E, Long> implements AsyncLDAO<E> {
+                AL() {
+                    super(emf, replicaEmf, executor,
+                            (em, replica) -> new LDAOFactory<E>().build(entityType, em, replica, cache, settings,
+                                    () -> executor));
+                }
+            }
+
+            return new AL();
+        }
+    }
+
+    @SuppressWarnings("ClassExplicitlyAnnotation")
+    private static final class DefaultDAO extends AnnotationLiteral<DAO> implements DAO {
+        private static final long serialVersionUID = 1L;
+        private static final DAO INSTANCE = new DefaultDAO();
+
+        @Override
+        public Class<? extends Annotation> value() {
+            return Default.class;
+        }
+
+        @Override
+        public int cacheSize() {
+            return 0;
+        }
+
+        @Override
+        public long cacheTtl() {
+            return 60;
+        }
+
+        @Override
+        public TimeUnit cacheTtlUnit() {
+            return SECONDS;
+        }
+
+        @Override
+        public boolean readOnly() {
+            return false;
+        }
+
+        @Override
+        public int fetchBatchSize() {
+            return 0;
+        }
+
+        @Override
+        public Class<? extends Annotation> replica() {
+            return Annotation.class;
+        }
+
+        @Override
+        public ReplicaReads replicaReads() {
+            return ReplicaReads.OUTSIDE_TRANSACTION;
+        }
+    }
 }
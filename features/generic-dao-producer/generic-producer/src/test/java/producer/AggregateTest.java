@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathBuilder;
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class AggregateTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldAggregateInDatabase() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("BB"));
+        helper.$(new MyEntity().setCourseName("CC"));
+        helper.$(new MyEntity().setCourseName("DDD"));
+
+        List<Tuple> groups = dao.aggregate((q, b, e) -> { }, AggregateTest::byLength, AggregateTest::lengthAndCount);
+
+        assertThat(groups)
+                .extracting(t -> t.get(0, Integer.class) + ":" + t.get(1, Long.class))
+                .containsOnly("1:1", "2:2", "3:1");
+
+        List<Tuple> page = dao.aggregate(1, 1, (q, b, e) -> { }, AggregateTest::byLength, AggregateTest::lengthAndCount);
+
+        assertThat(page)
+                .extracting(t -> t.get(0, Integer.class))
+                .containsExactly(2);
+
+        List<Long> total = dao.aggregate((q, b, e) -> { }, b -> emptyList(), b -> b.count());
+
+        assertThat(total)
+                .containsExactly(4L);
+
+        try (Stream<Integer> stream = dao.streamAggregate((q, b, e) -> q.having(b.count().gt(1L)),
+                AggregateTest::byLength, b -> b.getString("courseName").length())) {
+            assertThat(stream.collect(Collectors.toList()))
+                    .containsExactly(2);
+        }
+    }
+
+    private static List<Expression<Integer>> byLength(PathBuilder<MyEntity> b) {
+        return singletonList(b.getString("courseName").length());
+    }
+
+    private static Expression<Tuple> lengthAndCount(PathBuilder<MyEntity> b) {
+        return Projections.tuple(b.getString("courseName").length(), b.count());
+    }
+}
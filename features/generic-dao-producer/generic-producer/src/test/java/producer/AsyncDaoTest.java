@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.AsyncLDAO;
+import dao.DAO;
+import dao.LDAO;
+import dao.LoadResult;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class AsyncDaoTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @DAO(QTestDataSource.class)
+    AsyncLDAO<MyEntity> asyncDao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldRunLookupsConcurrently() throws Exception {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+
+        CompletableFuture<MyEntity> first = asyncDao.load(a.getId());
+        CompletableFuture<LoadResult<MyEntity, Long>> all = asyncDao.loadAllById(Arrays.asList(b.getId(), a.getId()));
+        CompletableFuture<Long> count = asyncDao.count((q, builder, e) -> { });
+
+        CompletableFuture.allOf(first, all, count).get();
+
+        assertThat(first.get().getCourseName())
+                .isEqualTo("A");
+
+        assertThat(all.get().getFound())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "A");
+
+        assertThat(count.get())
+                .isEqualTo(2);
+
+        MyEntity c = asyncDao.submitInTransaction(d -> {
+            MyEntity e = new MyEntity().setCourseName("C");
+            d.save(e);
+            return e;
+        }).get();
+
+        assertThat(dao.load(c.getId()).getCourseName())
+                .isEqualTo("C");
+    }
+
+    @Test
+    public void shouldRunInStateOfCaller() throws Exception {
+        CompletableFuture<Boolean> readOnly = dao.readOnly(() -> asyncDao.submit(d -> d.isReadOnly()));
+
+        assertThat(readOnly.get())
+                .isTrue();
+
+        assertThat(asyncDao.submit(d -> d.isReadOnly()).get())
+                .isFalse();
+
+        CompletableFuture<Long> late = dao.withDeadline(Duration.ofMillis(1), () -> asyncDao.submit(d -> {
+            sleep(50);
+            return d.count((q, builder, e) -> { });
+        }));
+
+        Throwable failure = null;
+        try {
+            late.get();
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        }
+
+        assertThat(failure)
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
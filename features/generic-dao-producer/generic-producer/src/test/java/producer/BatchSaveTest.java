@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class BatchSaveTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldSaveAndMergeInBatches() {
+        List<MyEntity> courses = asList(new MyEntity().setCourseName("A"), new MyEntity().setCourseName("B"),
+                new MyEntity().setCourseName("C"), new MyEntity().setCourseName("D"), new MyEntity().setCourseName("E"));
+
+        long saved = helper.$(() -> dao.saveAll(courses, 2));
+
+        assertThat(saved)
+                .isEqualTo(5L);
+
+        assertThat(dao.count())
+                .isEqualTo(5L);
+
+        assertThat(courses.stream().anyMatch(dao::isAttached))
+                .isFalse();
+
+        courses.forEach(e -> e.setCourseName(e.getCourseName().toLowerCase()));
+
+        long merged = helper.$(() -> dao.mergeAll(courses, 2));
+
+        assertThat(merged)
+                .isEqualTo(5L);
+
+        assertThat(dao.loadAll())
+                .extracting(MyEntity::getCourseName)
+                .containsOnly("a", "b", "c", "d", "e");
+    }
+}
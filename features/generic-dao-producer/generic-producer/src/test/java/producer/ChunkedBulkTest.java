@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.Chunks;
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class ChunkedBulkTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldDeleteAndUpdateInChunks() {
+        for (int i = 0; i < 5; i++) {
+            helper.$(new MyEntity().setCourseName("course" + i));
+        }
+        helper.$(new MyEntity().setCourseName("keep"));
+
+        List<Long> progress = new ArrayList<>();
+        long updated = dao.updateInChunks((q, b, e) -> q.where(b.getString("courseName").ne("keep")),
+                spec -> spec.set("courseName", spec.entity().getString("courseName").concat("!")),
+                Chunks.of(2));
+
+        assertThat(updated)
+                .isEqualTo(5);
+
+        long deleted = dao.deleteInChunks((q, b, e) -> q.where(b.getString("courseName").endsWith("!")),
+                Chunks.of(2).onProgress(progress::add));
+
+        assertThat(deleted)
+                .isEqualTo(5);
+
+        assertThat(progress)
+                .containsExactly(2L, 4L, 5L);
+
+        assertThat(dao.loadAll())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("keep");
+    }
+
+    @Test
+    public void shouldSkipRowsChangedAfterSelection() {
+        helper.$(new MyEntity().setCourseName("a!"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("b!"));
+
+        long deleted = dao.deleteInChunks((q, builder, e) -> q.where(builder.getString("courseName").endsWith("!")),
+                Chunks.of(10).inTransaction(chunk -> helper.$(() -> {
+                    dao.updateFields(b.getId(), spec -> spec.set("courseName", "b"));
+                    return chunk.getAsLong();
+                })));
+
+        assertThat(deleted)
+                .isEqualTo(1);
+
+        // bulk update does not refresh the managed entity
+        em.clear();
+
+        assertThat(dao.loadAll())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("b");
+    }
+
+    @Test
+    public void shouldRejectActiveTransaction() {
+        for (int i = 0; i < 3; i++) {
+            helper.$(new MyEntity().setCourseName("course" + i));
+        }
+
+        Throwable rejected = null;
+        try {
+            helper.$(() -> dao.deleteInChunks((q, builder, e) -> { }, Chunks.of(2)));
+        } catch (IllegalStateException e) {
+            rejected = e;
+        }
+
+        assertThat(rejected)
+                .isNotNull();
+
+        assertThat(dao.loadAll())
+                .hasSize(3);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.TransactionRequiredException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class ClaimBatchTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        em.clear();
+    }
+
+    @Test
+    public void shouldClaimBatchInTransaction() {
+        for (int i = 0; i < 5; i++) {
+            helper.$(new MyEntity().setCourseName("pending" + i));
+        }
+        helper.$(new MyEntity().setCourseName("done"));
+
+        List<MyEntity> claimed = helper.$(() -> {
+            List<MyEntity> batch = dao.claimBatch((q, b, e) -> q.where(b.getString("courseName").startsWith("pending")),
+                    3, Duration.ofSeconds(1));
+            batch.forEach(e -> e.setCourseName("done" + e.getCourseName()));
+            return batch;
+        });
+
+        assertThat(claimed)
+                .hasSize(3)
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("donepending0", "donepending1", "donepending2");
+
+        List<MyEntity> rest = helper.$(() -> dao.claimBatch((q, b, e) -> q.where(b.getString("courseName").startsWith("pending")),
+                3, Duration.ofSeconds(1)));
+
+        assertThat(rest)
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("pending3", "pending4");
+    }
+
+    @Test(expected = TransactionRequiredException.class)
+    public void shouldRequireTransaction() {
+        dao.claimBatch((q, b, e) -> { }, 1, Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryTimeoutException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class DeadlineTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        em.clear();
+    }
+
+    @Test
+    public void shouldRunWithinDeadline() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+        em.clear();
+
+        long count = dao.withDeadline(Duration.ofSeconds(10), () -> {
+            assertThat(dao.load(a.getId()).getCourseName())
+                    .isEqualTo("A");
+            return dao.count();
+        });
+
+        assertThat(count)
+                .isEqualTo(2);
+
+        long deleted = helper.$(() -> dao.withDeadline(Duration.ofSeconds(10),
+                () -> dao.deleteByIds(singleton(a.getId()))));
+
+        assertThat(deleted)
+                .isEqualTo(1);
+    }
+
+    @Test(expected = QueryTimeoutException.class)
+    public void shouldFailAfterDeadline() {
+        dao.withDeadline(Duration.ZERO, dao::count);
+    }
+
+    @Test(expected = QueryTimeoutException.class)
+    public void shouldNotExtendOuterDeadline() {
+        dao.withDeadline(Duration.ZERO, () -> dao.withDeadline(Duration.ofMinutes(1), dao::count));
+    }
+
+    @Test
+    public void shouldLoadWithQueryTimeout() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+        QueryTimeoutRecorder.clear();
+
+        MyEntity loaded = dao.withDeadline(Duration.ofSeconds(10), () -> dao.load(a.getId()));
+
+        assertThat(loaded.getCourseName())
+                .isEqualTo("A");
+
+        assertThat(QueryTimeoutRecorder.recordedTimeouts())
+                .contains(10);
+    }
+
+    @Test
+    public void shouldLoadLockedWithQueryTimeout() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+        QueryTimeoutRecorder.clear();
+
+        MyEntity loaded = helper.$(() -> dao.withDeadline(Duration.ofSeconds(10),
+                () -> dao.load(a.getId(), LockModeType.PESSIMISTIC_WRITE)));
+
+        assertThat(loaded.getCourseName())
+                .isEqualTo("A");
+
+        assertThat(QueryTimeoutRecorder.recordedTimeouts())
+                .contains(10);
+    }
+
+    @Test
+    public void shouldRefreshWithLockTimeout() throws NoSuchFieldException {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        List<Object> lockTimeouts = new ArrayList<>();
+        EntityManager recording = (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {EntityManager.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("refresh") && args.length == 3) {
+                        lockTimeouts.add(((Map<?, ?>) args[2]).get("javax.persistence.lock.timeout"));
+                    }
+                    try {
+                        return method.invoke(em, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        DAO settings = getClass().getDeclaredField("dao").getAnnotation(DAO.class);
+        LDAO<MyEntity> recordingDao = new DaoProducer.LDAOFactory<MyEntity>()
+                .build(MyEntity.class, recording, null, null, settings, () -> null);
+
+        MyEntity refreshed = helper.$(() -> recordingDao.refresh(a, LockModeType.PESSIMISTIC_WRITE, TimeUnit.SECONDS, 1));
+
+        assertThat(refreshed.getCourseName())
+                .isEqualTo("A");
+
+        assertThat(lockTimeouts)
+                .containsExactly(1000);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class DeleteByIdsTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        em.clear();
+    }
+
+    @Test
+    public void shouldDeleteWithoutLoading() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+        MyEntity c = helper.$(new MyEntity().setCourseName("C"));
+        MyEntity d = helper.$(new MyEntity().setCourseName("D"));
+        em.clear();
+
+        MyEntity managed = dao.load(b.getId());
+
+        long deleted = helper.$(() -> dao.deleteByIds(Arrays.asList(a.getId(), b.getId(), a.getId() + 1000)));
+
+        assertThat(deleted)
+                .isEqualTo(2);
+
+        assertThat(em.contains(managed))
+                .isFalse();
+
+        helper.$(() -> dao.delete(c.getId()));
+
+        assertThat(dao.loadAll())
+                .extracting(MyEntity::getId)
+                .containsExactly(d.getId());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void shouldNotDeleteMissingEntity() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+
+        helper.$(() -> dao.delete(a.getId() + 1000));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.EntityCache;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class EntityCacheTest {
+    @Inject
+    @DAO(value = QTestDataSource.class, cacheSize = 2)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> uncachedDao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        dao.getEntityCache().invalidateAll();
+    }
+
+    @Test
+    public void shouldReadThroughAndInvalidate() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+        MyEntity c = helper.$(new MyEntity().setCourseName("C"));
+        EntityCache<Long, MyEntity> cache = dao.getEntityCache();
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        long evictions = cache.getEvictionCount();
+
+        MyEntity loaded = dao.load(a.getId());
+        MyEntity hit = dao.load(a.getId());
+
+        assertThat(em.contains(loaded))
+                .isFalse();
+
+        assertThat(hit)
+                .isNotSameAs(loaded)
+                .isNotSameAs(dao.load(a.getId()));
+
+        assertThat(hit.getCourseName())
+                .isEqualTo("A");
+
+        assertThat(em.contains(hit))
+                .isFalse();
+
+        assertThat(cache.getHitCount() - hits)
+                .isEqualTo(2);
+
+        assertThat(cache.getMissCount() - misses)
+                .isEqualTo(1);
+
+        dao.load(b.getId());
+        dao.load(c.getId());
+
+        assertThat(cache.size())
+                .isEqualTo(2);
+
+        assertThat(cache.getEvictionCount() - evictions)
+                .isEqualTo(1);
+
+        helper.$(() -> dao.update(c.getId(), e -> e.setCourseName("D")));
+
+        assertThat(dao.load(c.getId()).getCourseName())
+                .isEqualTo("D");
+    }
+
+    @Test
+    public void shouldInvalidateOnWriteOutsideOfCachedDao() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        dao.load(a.getId());
+
+        // dirty checking of entity managed by other DAO
+        helper.$(() -> {
+            uncachedDao.load(a.getId()).setCourseName("B");
+        });
+
+        assertThat(dao.load(a.getId()).getCourseName())
+                .isEqualTo("B");
+
+        helper.$(() -> uncachedDao.updateFields(a.getId(), fields -> fields.set("courseName", "C")));
+        // bulk update does not refresh the persistence context
+        em.clear();
+
+        assertThat(dao.load(a.getId()).getCourseName())
+                .isEqualTo("C");
+
+        helper.$(() -> uncachedDao.delete(a.getId()));
+
+        assertThat(dao.load(a.getId()))
+                .isNull();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.KeysetPage;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class KeysetPaginationTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldSeekPages() {
+        helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+        MyEntity c = helper.$(new MyEntity().setCourseName("C"));
+
+        KeysetPage<MyEntity, Long> first = dao.loadAfter(null, 2);
+
+        assertThat(first.getContent())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A", "B");
+
+        assertThat(first.hasNext())
+                .isTrue();
+
+        assertThat(first.getContinuationKey())
+                .isEqualTo(b.getId());
+
+        KeysetPage<MyEntity, Long> last = dao.loadAfter(first.getContinuationKey(), 2);
+
+        assertThat(last.getContent())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("C");
+
+        assertThat(last.hasNext())
+                .isFalse();
+
+        assertThat(last.getContinuationKey())
+                .isEqualTo(c.getId());
+
+        KeysetPage<MyEntity, String> filtered = dao.loadAfter("courseName", String.class, "A", 2,
+                (q, builder, e) -> q.where(builder.getNumber("id", Long.class).ne(c.getId())));
+
+        assertThat(filtered.getContent())
+                .extracting(MyEntity::getId)
+                .containsExactly(b.getId());
+    }
+}
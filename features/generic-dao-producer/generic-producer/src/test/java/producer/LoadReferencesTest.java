@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class LoadReferencesTest {
+    @Inject
+    @DAO(value = QTestDataSource.class, fetchBatchSize = 2)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        em.clear();
+    }
+
+    @Test
+    public void shouldLoadEntitiesTogether() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+        MyEntity c = helper.$(new MyEntity().setCourseName("C"));
+        em.clear();
+
+        List<MyEntity> references = dao.loadReferences(Arrays.asList(c.getId(), a.getId(), b.getId(), a.getId()));
+
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        assertThat(references)
+                .hasSize(4)
+                .allMatch(reference -> !util.isLoaded(reference));
+
+        assertThat(references.get(0).getCourseName())
+                .isEqualTo("C");
+
+        // the first batch of two references is initialized together
+        assertThat(util.isLoaded(references.get(1)))
+                .isTrue();
+
+        assertThat(util.isLoaded(references.get(2)))
+                .isFalse();
+
+        assertThat(references)
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("C", "A", "B", "A");
+    }
+
+    @Test
+    public void shouldInitializeFromPrimary() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+
+        List<MyEntity> references = dao.loadReferences(Arrays.asList(a.getId()));
+
+        assertThat(em.contains(references.get(0)))
+                .isTrue();
+
+        assertThat(references.get(0).getCourseName())
+                .isEqualTo("A");
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void shouldNotLoadMissingEntity() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+
+        List<MyEntity> references = dao.loadReferences(Arrays.asList(a.getId(), a.getId() + 1));
+
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        assertThat(references.get(0).getCourseName())
+                .isEqualTo("A");
+
+        assertThat(util.isLoaded(references.get(1)))
+                .isFalse();
+
+        references.get(1).getCourseName();
+    }
+}
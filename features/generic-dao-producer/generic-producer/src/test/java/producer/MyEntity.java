@@ -33,6 +33,12 @@ public class MyEntity {
     @Column(name = "COURSE_NAME", unique = true, nullable = false)
     private String courseName;
 
+    @Column(name = "CATEGORY")
+    private String category;
+
+    @Column(name = "CREDITS")
+    private Integer credits;
+
     public Long getId() {
         return id;
     }
@@ -45,4 +51,22 @@ public class MyEntity {
         this.courseName = courseName;
         return this;
     }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public MyEntity setCategory(String category) {
+        this.category = category;
+        return this;
+    }
+
+    public Integer getCredits() {
+        return credits;
+    }
+
+    public MyEntity setCredits(Integer credits) {
+        this.credits = credits;
+        return this;
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import dao.Page;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class PageTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldLoadPageWithTotal() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+        helper.$(new MyEntity().setCourseName("C"));
+
+        Page<MyEntity> first = dao.loadPage(0, 2);
+
+        assertThat(first.getContent())
+                .hasSize(2);
+
+        assertThat(first.getTotal())
+                .isEqualTo(3);
+
+        assertThat(first.hasNext())
+                .isTrue();
+
+        Page<MyEntity> last = dao.loadPage(2, 2);
+
+        assertThat(last.getContent())
+                .hasSize(1);
+
+        assertThat(last.getTotal())
+                .isEqualTo(3);
+
+        assertThat(last.hasNext())
+                .isFalse();
+
+        Page<MyEntity> filtered = dao.loadPage(0, 1, (q, builder, e) -> q.where(builder.getString("courseName").ne("A")));
+
+        assertThat(filtered.getTotal())
+                .isEqualTo(2);
+
+        assertThat(filtered.isTotalEstimated())
+                .isFalse();
+    }
+
+    @Test
+    public void shouldCountFilteredPage() {
+        helper.$(new MyEntity().setCourseName("A").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("B").setCategory("y"));
+        helper.$(new MyEntity().setCourseName("C").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("D").setCategory("x"));
+
+        Page<MyEntity> first = dao.loadPage(0, 2, (q, builder, e) -> q.where(builder.getString("category").eq("x")));
+
+        assertThat(first.getContent())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A", "C");
+
+        assertThat(first.getTotal())
+                .isEqualTo(3);
+
+        Page<MyEntity> last = dao.loadPage(2, 2, (q, builder, e) -> q.where(builder.getString("category").eq("x")));
+
+        assertThat(last.getContent())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("D");
+
+        assertThat(last.getTotal())
+                .isEqualTo(3);
+
+        Page<MyEntity> beyond = dao.loadPage(6, 2, (q, builder, e) -> q.where(builder.getString("category").eq("x")));
+
+        assertThat(beyond.getContent())
+                .isEmpty();
+
+        assertThat(beyond.getTotal())
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void shouldEstimateTotal() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+        helper.$(new MyEntity().setCourseName("C"));
+
+        Page<MyEntity> first = dao.loadPageEstimated(0, 2);
+
+        assertThat(first.getContent())
+                .hasSize(2);
+
+        assertThat(first.getTotal())
+                .isGreaterThanOrEqualTo(3);
+
+        assertThat(first.hasNext())
+                .isTrue();
+
+        Page<MyEntity> exact = dao.loadPageEstimated(1, 2);
+
+        assertThat(exact.getContent())
+                .hasSize(2);
+
+        assertThat(exact.hasNext())
+                .isFalse();
+
+        Page<MyEntity> last = dao.loadPageEstimated(2, 2);
+
+        assertThat(last.getTotal())
+                .isEqualTo(3);
+
+        assertThat(last.isTotalEstimated())
+                .isFalse();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import com.querydsl.core.types.dsl.Param;
+import dao.DAO;
+import dao.LDAO;
+import dao.PreparedQuery;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class PreparedQueryTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldBindParametersOfPreparedQuery() {
+        helper.$(new MyEntity().setCourseName("Java EE"));
+        helper.$(new MyEntity().setCourseName("Java SE"));
+        helper.$(new MyEntity().setCourseName("Scala"));
+
+        Param<String> prefix = new Param<>(String.class, "prefix");
+        PreparedQuery<MyEntity> byPrefix = dao.prepare((q, b, e) -> q.where(b.getString("courseName").startsWith(prefix))
+                .orderBy(b.getString("courseName").asc()));
+
+        assertThat(byPrefix.set(prefix, "Java").loadAll())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("Java EE", "Java SE");
+
+        assertThat(byPrefix.set(prefix, "Java").count())
+                .isEqualTo(2L);
+
+        assertThat(byPrefix.set(prefix, "Sc").load())
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("Scala");
+
+        assertThat(byPrefix.set(prefix, "Java").loadAll(1, 10))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("Java SE");
+    }
+}
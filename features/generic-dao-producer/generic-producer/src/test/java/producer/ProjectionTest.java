@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathBuilder;
+import dao.DAO;
+import dao.LDAO;
+import dao.Page;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class ProjectionTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldProjectColumns() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+        helper.$(new MyEntity().setCourseName("C"));
+
+        List<String> names = dao.loadAll((q, b, e) -> q.orderBy(b.getString("courseName").desc()),
+                b -> b.getString("courseName"));
+
+        assertThat(names)
+                .containsExactly("C", "B", "A");
+
+        List<CourseView> views = dao.loadAll(1, 1, (q, b, e) -> q.orderBy(b.getString("courseName").asc()),
+                b -> Projections.constructor(CourseView.class, b.getNumber("id", Long.class), b.getString("courseName")));
+
+        assertThat(views)
+                .extracting(v -> v.name)
+                .containsExactly("B");
+
+        Page<Tuple> page = dao.loadPage(0, 2, (q, b, e) -> q.orderBy(b.getString("courseName").asc()),
+                ProjectionTest::idAndName);
+
+        assertThat(page.getTotal())
+                .isEqualTo(3);
+
+        assertThat(page.getContent().get(0).get(1, String.class))
+                .isEqualTo("A");
+
+        try (Stream<String> stream = dao.stream((q, b, e) -> q.where(b.getString("courseName").ne("B")),
+                b -> b.getString("courseName"))) {
+            assertThat(stream.collect(Collectors.toList()))
+                    .containsOnly("A", "C");
+        }
+    }
+
+    private static Expression<Tuple> idAndName(PathBuilder<MyEntity> b) {
+        return Projections.tuple(b.getNumber("id", Long.class), b.getString("courseName"));
+    }
+
+    public static final class CourseView {
+        private final Long id;
+        private final String name;
+
+        public CourseView(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
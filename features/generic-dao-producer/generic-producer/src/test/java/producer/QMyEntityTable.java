@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+/**
+ * Relational path of the table mapped by {@link MyEntity}.
+ */
+public class QMyEntityTable extends RelationalPathBase<MyEntity> {
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("checkstyle:visibilitymodifier")
+    public final StringPath courseName = createString("courseName");
+
+    public QMyEntityTable() {
+        super(MyEntity.class, PathMetadataFactory.forVariable("myEntity"), "PUBLIC", "MYENTITY");
+        addMetadata(courseName, ColumnMetadata.named("COURSE_NAME").withIndex(1).ofType(Types.VARCHAR).notNull());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the JDBC query timeouts set by the current thread on the statements of the test persistence unit.
+ */
+public class QueryTimeoutRecorder extends DriverManagerConnectionProviderImpl {
+    private static final ThreadLocal<List<Integer>> TIMEOUTS = ThreadLocal.withInitial(ArrayList::new);
+
+    static List<Integer> recordedTimeouts() {
+        return new ArrayList<>(TIMEOUTS.get());
+    }
+
+    static void clear() {
+        TIMEOUTS.get().clear();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        // the pool returns the connections recording already
+        if (Proxy.isProxyClass(connection.getClass())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement ? recording((Statement) result, method.getReturnType()) : result;
+                });
+    }
+
+    private static Object recording(Statement statement, Class<?> statementType) {
+        return Proxy.newProxyInstance(QueryTimeoutRecorder.class.getClassLoader(), new Class<?>[] {statementType},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("setQueryTimeout")) {
+                        TIMEOUTS.get().add((Integer) args[0]);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
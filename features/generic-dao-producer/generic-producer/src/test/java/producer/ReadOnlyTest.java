@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class ReadOnlyTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @DAO(value = QTestDataSource.class, readOnly = true)
+    LDAO<MyEntity> readOnlyDao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        em.clear();
+    }
+
+    @Test
+    public void shouldNotFlushChangesOfReadOnlyEntities() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+        em.clear();
+
+        helper.$(() -> dao.readOnly(() -> dao.load(a.getId()).setCourseName("X")));
+        helper.$(() -> readOnlyDao.loadAll().forEach(e -> e.setCourseName(e.getCourseName() + "Y")));
+        helper.$(() -> readOnlyDao.load(b.getId()).setCourseName("Z"));
+        em.clear();
+        helper.$(() -> readOnlyDao.findByAttributeAsString("courseName", "A", false).forEach(e -> e.setCourseName("V")));
+        em.clear();
+        helper.$(() -> readOnlyDao.findByAttributeAsPattern("courseName", "B%").forEach(e -> e.setCourseName("W")));
+        em.clear();
+
+        assertThat(dao.loadAll())
+                .extracting(MyEntity::getCourseName)
+                .containsOnly("A", "B");
+
+        assertThat(readOnlyDao.isReadOnly())
+                .isTrue();
+
+        assertThat(dao.isReadOnly())
+                .isFalse();
+    }
+
+    @Test
+    public void shouldNotFlushChangesOfPreparedQuery() {
+        helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+
+        helper.$(() -> readOnlyDao.prepare((q, builder, e) -> q.where(builder.getString("courseName").eq("A")))
+                .loadAll()
+                .forEach(e -> e.setCourseName("U")));
+        em.clear();
+
+        assertThat(dao.loadAll())
+                .extracting(MyEntity::getCourseName)
+                .containsOnly("A");
+    }
+}
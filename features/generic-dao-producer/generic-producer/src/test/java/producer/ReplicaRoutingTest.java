@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.AsyncLDAO;
+import dao.DAO;
+import dao.GenericNumericDAO;
+import dao.LDAO;
+import dao.ReplicaReads;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class ReplicaRoutingTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    @QTestDataSource
+    EntityManagerFactory emf;
+
+    @Inject
+    @DAO(value = QTestDataSource.class, replica = QTestDataSource.class)
+    LDAO<MyEntity> producedDao;
+
+    @Inject
+    @DAO(value = QTestDataSource.class, replica = QTestDataSource.class)
+    LDAO<MyEntity> reusedDao;
+
+    @Inject
+    @DAO(value = QTestDataSource.class, replica = QTestDataSource.class)
+    AsyncLDAO<MyEntity> asyncDao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    EntityManager replica;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        em.clear();
+        replica = emf.createEntityManager();
+    }
+
+    @After
+    public void closeReplica() {
+        replica.close();
+    }
+
+    @Test
+    public void shouldReadFromReplicaOutsideTransaction() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+        LDAO<MyEntity> replicated = replicatedDao(ReplicaReads.OUTSIDE_TRANSACTION);
+
+        MyEntity loaded = replicated.load(a.getId());
+
+        assertThat(replica.contains(loaded))
+                .isTrue();
+
+        assertThat(em.contains(loaded))
+                .isFalse();
+
+        assertThat(replicated.loadAll())
+                .allMatch(replica::contains);
+
+        assertThat(replicated.count())
+                .isEqualTo(1);
+
+        MyEntity loadedInTransaction = helper.$(() -> replicated.load(a.getId()));
+
+        assertThat(em.contains(loadedInTransaction))
+                .isTrue();
+    }
+
+    @Test
+    public void shouldProjectFromReplica() {
+        helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+        LDAO<MyEntity> replicated = replicatedDao(ReplicaReads.OUTSIDE_TRANSACTION);
+
+        assertThat(replicated.loadAll((q, builder, e) -> { }, entity -> entity))
+                .hasSize(1)
+                .allMatch(replica::contains);
+
+        assertThat(replicated.stream((q, builder, e) -> { }, entity -> entity))
+                .hasSize(1)
+                .allMatch(replica::contains);
+
+        assertThat(em.contains(replicated.loadAll().get(0)))
+                .isFalse();
+    }
+
+    @Test
+    public void shouldReadFromReplicaOnlyReadOnly() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+        LDAO<MyEntity> replicated = replicatedDao(ReplicaReads.READ_ONLY);
+
+        assertThat(em.contains(replicated.load(a.getId())))
+                .isTrue();
+
+        em.clear();
+
+        MyEntity loaded = replicated.readOnly(() -> replicated.load(a.getId()));
+
+        assertThat(replica.contains(loaded))
+                .isTrue();
+    }
+
+    @Test
+    public void shouldDeleteEntityLoadedFromReplica() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+        LDAO<MyEntity> replicated = replicatedDao(ReplicaReads.OUTSIDE_TRANSACTION);
+
+        MyEntity loaded = replicated.load(a.getId());
+        helper.$(() -> replicated.delete(loaded));
+
+        assertThat(dao.count())
+                .isZero();
+    }
+
+    @Test
+    public void shouldDetachStreamedEntitiesFromReplica() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+        em.clear();
+        LDAO<MyEntity> replicated = replicatedDao(ReplicaReads.OUTSIDE_TRANSACTION);
+
+        List<MyEntity> streamed = new ArrayList<>();
+        replicated.forEach((q, e, a) -> { }, streamed::add);
+
+        assertThat(streamed)
+                .hasSize(2)
+                .allMatch(e -> !replica.contains(e));
+    }
+
+    @Test
+    public void shouldLoadAllByIdFromReplica() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        MyEntity b = helper.$(new MyEntity().setCourseName("B"));
+        em.clear();
+        em.find(MyEntity.class, a.getId());
+        LDAO<MyEntity> replicated = replicatedDao(ReplicaReads.OUTSIDE_TRANSACTION);
+
+        assertThat(replicated.loadAllById(Arrays.asList(a.getId(), b.getId())).getFound())
+                .hasSize(2)
+                .allMatch(replica::contains);
+    }
+
+    @Test
+    public void shouldProduceDaoWithReplica() throws Exception {
+        assertThat(replicaEm(producedDao))
+                .isNotNull();
+
+        assertThat(producedDao)
+                .isSameAs(reusedDao);
+
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+
+        assertThat(asyncDao.submit(d -> {
+            try {
+                EntityManager replica = replicaEm(d);
+                return replica != null && replica.isOpen() && d.load(a.getId()) != null;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get())
+                .isTrue();
+    }
+
+    /**
+     * The replica entity manager is not part of the public API of DAO.
+     */
+    private static EntityManager replicaEm(Object dao) throws ReflectiveOperationException {
+        for (Class<?> type = dao.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Method replicaEm = type.getDeclaredMethod("replicaEm");
+                replicaEm.setAccessible(true);
+                return (EntityManager) replicaEm.invoke(dao);
+            } catch (NoSuchMethodException e) {
+                // declared in superclass
+            }
+        }
+        throw new NoSuchMethodException("replicaEm");
+    }
+
+    private LDAO<MyEntity> replicatedDao(ReplicaReads policy) {
+        class ReplicatedDAO extends GenericNumericDAO<MyEntity, Long> implements LDAO<MyEntity> {
+            private static final long serialVersionUID = 1L;
+
+            ReplicatedDAO() {
+                super(MyEntity.class, Long.class);
+            }
+
+            @Override
+            protected EntityManager em() {
+                return em;
+            }
+
+            @Override
+            protected EntityManager replicaEm() {
+                return replica;
+            }
+
+            @Override
+            protected ReplicaReads replicaReads() {
+                return policy;
+            }
+        }
+        return new ReplicatedDAO();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.Chunks;
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class ScanPartitionedTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldProcessEveryEntityOnce() {
+        for (int i = 0; i < 10; i++) {
+            helper.$(new MyEntity().setCourseName("course" + i));
+        }
+        helper.$(new MyEntity().setCourseName("skipped"));
+
+        List<String> processed = new CopyOnWriteArrayList<>();
+        List<Long> progress = new CopyOnWriteArrayList<>();
+        long total = dao.scanPartitioned(3, (q, b, e) -> q.where(b.getString("courseName").startsWith("course")),
+                chunk -> chunk.forEach(e -> processed.add(e.getCourseName())), Chunks.of(2).onProgress(progress::add));
+
+        assertThat(total)
+                .isEqualTo(10);
+
+        assertThat(processed)
+                .hasSize(10)
+                .containsOnly("course0", "course1", "course2", "course3", "course4",
+                        "course5", "course6", "course7", "course8", "course9");
+
+        assertThat(Collections.max(progress))
+                .isEqualTo(10L);
+    }
+
+    @Test
+    public void shouldKeepReadOnlyModeOfCaller() {
+        for (int i = 0; i < 4; i++) {
+            helper.$(new MyEntity().setCourseName("course" + i));
+        }
+
+        List<Boolean> readOnly = new CopyOnWriteArrayList<>();
+        dao.readOnly(() -> dao.scanPartitioned(2, (q, b, e) -> { }, chunk -> readOnly.add(dao.isReadOnly()), Chunks.of(1)));
+
+        assertThat(readOnly)
+                .hasSize(4)
+                .containsOnly(true);
+    }
+
+    @Test
+    public void shouldProcessChunksInChunkTransaction() {
+        for (int i = 0; i < 4; i++) {
+            helper.$(new MyEntity().setCourseName("course" + i));
+        }
+
+        AtomicInteger transactions = new AtomicInteger();
+        long total = dao.scanPartitioned(2, (q, b, e) -> { }, chunk -> { }, Chunks.of(1).inTransaction(chunk -> {
+            transactions.incrementAndGet();
+            return chunk.getAsLong();
+        }));
+
+        assertThat(total)
+                .isEqualTo(4);
+
+        assertThat(transactions.get())
+                .isEqualTo(4);
+    }
+
+    @Test
+    public void shouldScanInExecutorOfCaller() {
+        for (int i = 0; i < 4; i++) {
+            helper.$(new MyEntity().setCourseName("course" + i));
+        }
+
+        AtomicInteger partitions = new AtomicInteger();
+        long total = dao.scanPartitioned(2, (q, b, e) -> { }, chunk -> { }, Chunks.of(1), task -> {
+            partitions.incrementAndGet();
+            new Thread(task).start();
+        });
+
+        assertThat(total)
+                .isEqualTo(4);
+
+        assertThat(partitions.get())
+                .isEqualTo(2);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldPropagateRejection() {
+        helper.$(new MyEntity().setCourseName("course"));
+        dao.scanPartitioned(2, (q, b, e) -> { }, chunk -> { }, Chunks.of(1), task -> {
+            throw new RejectedExecutionException();
+        });
+    }
+
+    @Test
+    public void shouldScanNothing() {
+        assertThat(dao.scanPartitioned(4, (q, b, e) -> { }, chunk -> { }))
+                .isZero();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateFailure() {
+        helper.$(new MyEntity().setCourseName("course"));
+        dao.scanPartitioned(2, (q, b, e) -> { }, chunk -> {
+            throw new IllegalStateException();
+        });
+    }
+}
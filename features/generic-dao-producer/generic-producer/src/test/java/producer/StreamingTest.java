@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class StreamingTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldStreamAndDetach() {
+        helper.$(new MyEntity().setCourseName("Java EE"));
+        helper.$(new MyEntity().setCourseName("Java SE"));
+        helper.$(new MyEntity().setCourseName("Scala"));
+
+        try (Stream<MyEntity> entities = dao.stream((q, b, e) -> q.where(b.getString("courseName").startsWith("Java")))) {
+            List<MyEntity> javaCourses = entities.collect(toList());
+
+            assertThat(javaCourses)
+                    .extracting(MyEntity::getCourseName)
+                    .containsOnly("Java EE", "Java SE");
+
+            assertThat(javaCourses.stream().anyMatch(dao::isAttached))
+                    .isFalse();
+        }
+    }
+
+    @Test
+    public void shouldFlushAndClearEveryFetchSizeRows() {
+        List<MyEntity> courses = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            courses.add(new MyEntity().setCourseName("course" + i));
+        }
+        helper.$(() -> dao.saveAll(courses, 100));
+        MyEntity first = courses.get(0);
+
+        boolean attached = helper.$(() -> {
+            MyEntity changed = dao.load(first.getId());
+            changed.setCourseName("changed");
+            dao.forEach(emptyList(), e -> { });
+            return dao.isAttached(changed);
+        });
+
+        assertThat(attached)
+                .isFalse();
+
+        assertThat(dao.load(first.getId()).getCourseName())
+                .isEqualTo("changed");
+    }
+
+    @Test
+    public void shouldScrollAllEntities() {
+        helper.$(new MyEntity().setCourseName("Java EE"));
+        helper.$(new MyEntity().setCourseName("Scala"));
+
+        List<String> courses = new ArrayList<>();
+        dao.forEach(emptyList(), e -> courses.add(e.getCourseName()));
+
+        assertThat(courses)
+                .containsOnly("Java EE", "Scala");
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+
+import static com.querydsl.core.types.Order.ASC;
+import static com.querydsl.core.types.Order.DESC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class TopNPerGroupTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldLoadTopEntitiesOfEveryGroup() {
+        helper.$(new MyEntity().setCourseName("A").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("B").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("C").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("D").setCategory("y"));
+        helper.$(new MyEntity().setCourseName("E").setCategory("y"));
+        helper.$(new MyEntity().setCourseName("F").setCategory("z"));
+
+        assertThat(dao.loadTopNPerGroup("category", "courseName", DESC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("C", "B", "E", "D", "F");
+
+        assertThat(dao.loadTopNPerGroup("category", "courseName", ASC, 1))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A", "D", "F");
+
+        assertThat(dao.loadTopNPerGroup((q, b, e) -> q.where(b.getString("courseName").ne("C")),
+                "category", "courseName", DESC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "A", "E", "D", "F");
+    }
+
+    @Test
+    public void shouldRankNullsLast() {
+        helper.$(new MyEntity().setCourseName("A").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("B").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("C"));
+        helper.$(new MyEntity().setCourseName("D"));
+        helper.$(new MyEntity().setCourseName("E"));
+
+        assertThat(dao.loadTopNPerGroup("category", "courseName", DESC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "A", "E", "D");
+
+        assertThat(dao.loadTopNPerGroup((q, b, e) -> q.where(b.getString("courseName").ne("A")),
+                "category", "courseName", ASC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "C", "D");
+
+        // NULL values of the order attribute are equal, ranked by the primary key
+        assertThat(dao.loadTopNPerGroup("category", "category", ASC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A", "B", "C", "D");
+    }
+
+    @Test
+    public void shouldRankNullGroupAndNullOrderValuesLast() {
+        helper.$(new MyEntity().setCourseName("A").setCategory("x").setCredits(3));
+        helper.$(new MyEntity().setCourseName("B").setCategory("x").setCredits(1));
+        helper.$(new MyEntity().setCourseName("C").setCategory("x"));
+        helper.$(new MyEntity().setCourseName("D").setCredits(2));
+        helper.$(new MyEntity().setCourseName("E"));
+        helper.$(new MyEntity().setCourseName("F").setCredits(5));
+
+        assertThat(dao.loadTopNPerGroup("category", "credits", ASC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "A", "D", "F");
+
+        assertThat(dao.loadTopNPerGroup("category", "credits", DESC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A", "B", "F", "D");
+
+        assertThat(dao.loadTopNPerGroup("category", "credits", ASC, 3))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "A", "C", "D", "F", "E");
+
+        assertThat(dao.loadTopNPerGroup((q, b, e) -> q.where(b.getString("courseName").ne("A")),
+                "category", "credits", DESC, 2))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B", "C", "F", "D");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import dao.DAO;
+import dao.LDAO;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class UpdateFieldsTest {
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<VersionedEntity> versionedDao;
+
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<TimestampedEntity> timestampedDao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+        versionedDao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> versionedDao.delete(e)));
+        timestampedDao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> timestampedDao.delete(e)));
+        em.clear();
+    }
+
+    @Test
+    public void shouldUpdateChangedFieldsOnly() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        em.clear();
+
+        long updated = helper.$(() -> dao.updateFields(a.getId(), spec -> spec.set("courseName", "B")));
+
+        assertThat(updated)
+                .isEqualTo(1);
+
+        assertThat(dao.load(a.getId()).getCourseName())
+                .isEqualTo("B");
+
+        long missing = helper.$(() -> dao.updateFields(a.getId() + 1000, spec -> spec.set("courseName", "C")));
+
+        assertThat(missing)
+                .isZero();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRequireVersionAttribute() {
+        MyEntity a = helper.$(new MyEntity().setCourseName("A"));
+        dao.updateFields(a.getId(), spec -> spec.set("courseName", "B").expectVersion(1));
+    }
+
+    @Test
+    public void shouldIncrementVersion() {
+        VersionedEntity a = helper.$(new VersionedEntity().setName("A"));
+        em.clear();
+
+        long updated = helper.$(() -> versionedDao.updateFields(a.getId(),
+                spec -> spec.set("name", "B").expectVersion(a.getVersion())));
+
+        assertThat(updated)
+                .isEqualTo(1);
+
+        VersionedEntity b = versionedDao.load(a.getId());
+
+        assertThat(b.getName())
+                .isEqualTo("B");
+
+        assertThat(b.getVersion())
+                .isEqualTo(a.getVersion() + 1);
+    }
+
+    @Test
+    public void shouldNotUpdateStaleVersion() {
+        VersionedEntity a = helper.$(new VersionedEntity().setName("A"));
+        em.clear();
+
+        helper.$(() -> versionedDao.updateFields(a.getId(), spec -> spec.set("name", "B")));
+
+        long stale = helper.$(() -> versionedDao.updateFields(a.getId(),
+                spec -> spec.set("name", "C").expectVersion(a.getVersion())));
+
+        assertThat(stale)
+                .isZero();
+
+        assertThat(versionedDao.load(a.getId()).getName())
+                .isEqualTo("B");
+    }
+
+    @Test
+    public void shouldSetTimeVersion() throws InterruptedException {
+        TimestampedEntity a = helper.$(new TimestampedEntity().setName("A"));
+        em.clear();
+        // the database time must differ from the time version set by Hibernate
+        Thread.sleep(50);
+
+        long updated = helper.$(() -> timestampedDao.updateFields(a.getId(),
+                spec -> spec.set("name", "B").expectVersion(a.getVersion())));
+
+        assertThat(updated)
+                .isEqualTo(1);
+
+        TimestampedEntity b = timestampedDao.load(a.getId());
+
+        assertThat(b.getName())
+                .isEqualTo("B");
+
+        assertThat(b.getVersion())
+                .isAfter(a.getVersion());
+
+        long stale = helper.$(() -> timestampedDao.updateFields(a.getId(),
+                spec -> spec.set("name", "C").expectVersion(a.getVersion())));
+
+        assertThat(stale)
+                .isZero();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package producer;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import dao.Alias;
+import dao.DAO;
+import dao.Entry;
+import dao.LDAO;
+import dao.WheresAdapter;
+import org.apache.deltaspike.core.api.projectstage.ProjectStage;
+import org.apache.deltaspike.testcontrol.api.TestControl;
+import org.apache.deltaspike.testcontrol.api.junit.CdiTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Vetoed;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CdiTestRunner.class)
+@TestControl(startScopes = RequestScoped.class, projectStage = ProjectStage.Development.class,
+        startExternalContainers = false)
+@Vetoed
+public class WheresAdapterTest {
+    private static final AtomicInteger COMPILATIONS = new AtomicInteger();
+
+    @Inject
+    @DAO(QTestDataSource.class)
+    LDAO<MyEntity> dao;
+
+    @Inject
+    @QTestDataSource
+    EntityManager em;
+
+    @Inject
+    TransactionalDeltaspikeHelper helper;
+
+    @Before
+    public void cleanupDatabase() {
+        dao.loadAll()
+                .stream()
+                .forEach(e -> helper.$(() -> dao.delete(e)));
+    }
+
+    @Test
+    public void shouldCompileShapeOnce() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+
+        int compilations = COMPILATIONS.get();
+
+        assertThat(search("A"))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A");
+
+        assertThat(search("B"))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("B");
+
+        assertThat(COMPILATIONS.get() - compilations)
+                .isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepUnfilterableCriteria() {
+        Map<String, Object> criteria = new HashMap<>();
+        criteria.put("e.courseName", "A");
+        criteria.put("page", 1);
+        PathBuilder<MyEntity> entity = new PathBuilder<>(MyEntity.class, "e");
+        CourseFilter filter = new CourseFilter(criteria);
+
+        filter.where(new JPAQuery<>(em).from(entity), singletonMap(new Alias("e"), entity));
+
+        assertThat(criteria)
+                .containsOnlyKeys("page");
+
+        assertThat(filter.aliasTypes())
+                .containsExactly(MyEntity.class);
+    }
+
+    @Test
+    public void shouldIgnoreNullCriteria() {
+        helper.$(new MyEntity().setCourseName("A"));
+        helper.$(new MyEntity().setCourseName("B"));
+
+        assertThat(search(null))
+                .extracting(MyEntity::getCourseName)
+                .containsOnly("A", "B");
+
+        assertThat(search("A"))
+                .extracting(MyEntity::getCourseName)
+                .containsExactly("A");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MyEntity> search(String courseName) {
+        Map<String, Object> criteria = new HashMap<>();
+        criteria.put("e.courseName", courseName);
+        PathBuilder<MyEntity> entity = new PathBuilder<>(MyEntity.class, "e");
+        JPAQuery<MyEntity> q = new JPAQuery<>(em).select(entity).from(entity);
+        new CourseFilter(criteria).where(q, singletonMap(new Alias("e"), entity));
+        return q.fetch();
+    }
+
+    private static class CourseFilter extends WheresAdapter {
+        CourseFilter(Map<String, Object> embeddedCriteria) {
+            super(embeddedCriteria);
+        }
+
+        @Override
+        public JPAQuery where(JPAQuery query, Map<Alias, PathBuilder<?>> builders, Map<Entry, Object> params) {
+            throw new AssertionError("the filter is compiled");
+        }
+
+        @Override
+        protected Predicate compile(Map<Entry, Param<Object>> params, Map<Alias, PathBuilder<?>> builders) {
+            COMPILATIONS.incrementAndGet();
+            BooleanBuilder predicate = new BooleanBuilder();
+            params.forEach((entry, param) -> predicate.and(builders.get(entry.getAlias()).get(entry.getProperty()).eq(param)));
+            return predicate;
+        }
+
+        @Override
+        protected boolean isKeyFilterable(String key) {
+            return key.contains(".");
+        }
+
+        @Override
+        protected String filterableAlias(String key) {
+            return key.substring(0, key.indexOf('.'));
+        }
+
+        @Override
+        protected String filterableProperty(String key) {
+            return key.substring(key.indexOf('.') + 1);
+        }
+    }
+}